@@ -0,0 +1,94 @@
+package com.github.pcre;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import com.github.pcre.PCReversal.QuestionInt;
+
+/**
+ * How synthetic respondents answer the test, for {@link BiasSimulator}.
+ */
+interface AnswerModel {
+	/**
+	 * Fills in the answers (0-3) of one respondent by question ordinal.
+	 */
+	void sample(SplittableRandom random, int[] answers);
+	
+	/**
+	 * Every answer to every question is equally likely.
+	 */
+	static AnswerModel uniform() {
+		return (random, answers) -> {
+			for (int ordinal = 0; ordinal < answers.length; ++ordinal)
+				answers[ordinal] = random.nextInt(4);
+		};
+	}
+	
+	/**
+	 * Questions are answered independently with the given probabilities,
+	 * {@code probabilities[ordinal][answer]}.
+	 */
+	static AnswerModel biased(double[][] probabilities) {
+		if (probabilities.length != Questions.COUNT)
+			throw new IllegalArgumentException(String.format(
+					"There are answer probabilities for %d questions but there " +
+					"are %d.",
+					probabilities.length, Questions.COUNT));
+		
+		double[][] cumulative = new double[probabilities.length][3];
+		for (int ordinal = 0; ordinal < probabilities.length; ++ordinal) {
+			double[] p = probabilities[ordinal];
+			if (p.length != 4 || Math.abs(p[0] + p[1] + p[2] + p[3] - 1) > 1e-9)
+				throw new IllegalArgumentException(String.format(
+						"Answer probabilities for question #%d (%s) need to be 4 " +
+						"values that add up to 1.",
+						ordinal, Arrays.toString(p)));
+			cumulative[ordinal][0] = p[0];
+			cumulative[ordinal][1] = p[0] + p[1];
+			cumulative[ordinal][2] = p[0] + p[1] + p[2];
+		}
+		
+		return (random, answers) -> {
+			for (int ordinal = 0; ordinal < answers.length; ++ordinal) {
+				double[] c = cumulative[ordinal];
+				double u = random.nextDouble();
+				answers[ordinal] = u < c[0] ? 0 : u < c[1] ? 1 : u < c[2] ? 2 : 3;
+			}
+		};
+	}
+	
+	/**
+	 * Each respondent has a leaning on each axis, drawn uniformly from
+	 * [-1, 1], and answers every question consistently with it: the
+	 * probability of answer <i>a</i> is proportional to
+	 *
+	 * <p>
+	 * <i>exp(strength * leaning * direction * (a - 1.5))</i>
+	 *
+	 * <p>
+	 * where <i>direction</i> is 1 if agreeing with the question moves the
+	 * score up its axis and -1 otherwise. A strength of 0 is the same as
+	 * {@link #uniform()}; larger strengths make answers more correlated.
+	 */
+	static AnswerModel correlated(Scorer scorer, double strength) {
+		int[] axes = new int[Questions.COUNT];
+		double[] directions = new double[Questions.COUNT];
+		for (int ordinal = 0; ordinal < axes.length; ++ordinal) {
+			axes[ordinal] = scorer.axis(ordinal);
+			directions[ordinal] = Math.signum(scorer.increment(ordinal, 3));
+		}
+		
+		return (random, answers) -> {
+			double economic = random.nextDouble() * 2 - 1;
+			double social = random.nextDouble() * 2 - 1;
+			for (int ordinal = 0; ordinal < answers.length; ++ordinal) {
+				double leaning = axes[ordinal] == QuestionInt.ECONOMIC ? economic : social;
+				double step = Math.exp(strength * leaning * directions[ordinal]);
+				// Weights 1, step, step^2, step^3, up to a common factor.
+				double w1 = step, w2 = step * step, w3 = w2 * step;
+				double u = random.nextDouble() * (1 + w1 + w2 + w3);
+				answers[ordinal] = u < 1 ? 0 : u < 1 + w1 ? 1 : u < 1 + w1 + w2 ? 2 : 3;
+			}
+		};
+	}
+}
@@ -0,0 +1,157 @@
+package com.github.pcre;
+
+import static com.github.pcre.Questions.COUNT;
+import static com.github.pcre.Questions.OFFSETS;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Answers to all questions packed into two {@code long}s, 2 bits per question.
+ *
+ * <p>
+ * The answer to the question with ordinal <i>i</i> (see
+ * {@link Questions#ordinal(int, int)}) is stored in bits <i>2i</i> and
+ * <i>2i + 1</i> of {@link #low} for <i>i</i> &lt; 32 and in bits
+ * <i>2(i - 32)</i> and <i>2(i - 32) + 1</i> of {@link #high} otherwise.
+ *
+ * <p>
+ * Answer values are the same as for {@link PCReversal#run(Map)}:
+ * <li> Strongly Disagree: 0
+ * <li> Disagree: 1
+ * <li> Agree: 2
+ * <li> Strongly Agree: 3
+ */
+final class AnswerVector {
+	/**
+	 * "Strongly Disagree" to every question.
+	 */
+	public static final AnswerVector ZERO = new AnswerVector(0, 0);
+	
+	public final long low, high;
+	
+	public AnswerVector(long low, long high) {
+		this.low = low;
+		this.high = high;
+	}
+	
+	/**
+	 * Packs question-answer pairs in the form {@link PCReversal#run(Map)}
+	 * takes. Questions that aren't in the map are taken to be answered with
+	 * "Strongly Disagree" (0), and entries that aren't questions (like
+	 * {@code page}) are ignored.
+	 */
+	public static AnswerVector of(Map<String, Integer> response) {
+		int[] answers = new int[COUNT];
+		for (Map.Entry<String, Integer> entry : response.entrySet()) {
+			int ordinal = Questions.ordinal(entry.getKey());
+			Integer answer = entry.getValue();
+			if (ordinal < 0 || answer == null)
+				continue;
+			
+			check(entry.getKey(), answer);
+			answers[ordinal] = answer;
+		}
+		return of(answers);
+	}
+	
+	/**
+	 * Packs answers given by ordinal. The answers need to be in [0, 3]; they
+	 * aren't checked, since this is what packs every respondent and sample.
+	 */
+	public static AnswerVector of(int[] answers) {
+		if (answers.length != COUNT)
+			throw new IllegalArgumentException(String.format(
+					"There are answers to %d questions but there are %d.",
+					answers.length, COUNT));
+		
+		long low = 0, high = 0;
+		for (int ordinal = 0; ordinal < 32; ++ordinal)
+			low |= (long) answers[ordinal] << (ordinal << 1);
+		for (int ordinal = 32; ordinal < COUNT; ++ordinal)
+			high |= (long) answers[ordinal] << ((ordinal - 32) << 1);
+		return new AnswerVector(low, high);
+	}
+	
+	private static void check(String question, int answer) {
+		if (answer < 0 || answer > 3)
+			throw new IllegalArgumentException(String.format(
+					"Answer to %s (%d) needs to be in [0, 3].", question, answer));
+	}
+	
+	public int get(int ordinal) {
+		return ordinal < 32 ?
+				(int) (low >>> (ordinal << 1)) & 3 :
+				(int) (high >>> ((ordinal - 32) << 1)) & 3;
+	}
+	
+	public int get(int page, int question) {
+		return get(Questions.ordinal(page, question));
+	}
+	
+	public AnswerVector with(int ordinal, int answer) {
+		if (ordinal < 0 || ordinal >= COUNT)
+			throw new IndexOutOfBoundsException(String.format(
+					"Ordinal (%d) needs to be in [0, %d).", ordinal, COUNT));
+		if (answer < 0 || answer > 3)
+			throw new IllegalArgumentException(String.format(
+					"Answer to question #%d (%d) needs to be in [0, 3].",
+					ordinal, answer));
+		
+		if (ordinal < 32) {
+			int shift = ordinal << 1;
+			return new AnswerVector(
+					low & ~(3L << shift) | (long) answer << shift, high);
+		} else {
+			int shift = (ordinal - 32) << 1;
+			return new AnswerVector(
+					low, high & ~(3L << shift) | (long) answer << shift);
+		}
+	}
+	
+	/**
+	 * Unpacks all answers into the form {@link PCReversal#run(Map)} takes.
+	 */
+	public Map<String, Integer> toMap() {
+		Map<String, Integer> response = new HashMap<>();
+		for (int page = 1; page <= Questions.PAGES; ++page)
+			put(page, response);
+		return response;
+	}
+	
+	/**
+	 * Unpacks the answers on a single page, like the ones sent for each page
+	 * of the test.
+	 */
+	public Map<String, Integer> toMap(int page) {
+		Map<String, Integer> response = new HashMap<>();
+		put(page, response);
+		return response;
+	}
+	
+	private void put(int page, Map<String, Integer> response) {
+		for (int ordinal = OFFSETS[page - 1]; ordinal < OFFSETS[page]; ++ordinal)
+			response.put(Questions.name(ordinal), get(ordinal));
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof AnswerVector))
+			return false;
+		AnswerVector v = (AnswerVector) o;
+		return low == v.low && high == v.high;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Long.hashCode(low) * 31 + Long.hashCode(high);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(COUNT);
+		for (int ordinal = 0; ordinal < COUNT; ++ordinal)
+			builder.append(get(ordinal));
+		return builder.toString();
+	}
+}
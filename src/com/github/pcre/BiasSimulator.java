@@ -0,0 +1,174 @@
+package com.github.pcre;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.github.pcre.PCReversal.QuestionInt;
+
+/**
+ * Monte Carlo counterpart of {@link ScoreDistribution}, for answer models
+ * where questions aren't answered independently.
+ *
+ * <p>
+ * Samples are split between tasks on a {@link ForkJoinPool} the same way
+ * {@link BulkScorer} splits respondents. Each task draws from its own
+ * {@link SplittableRandom}, split off its parent's, and counts into its own
+ * histogram, and histograms are added up as the tasks are joined. A run is
+ * therefore reproducible from its seed whatever the parallelism.
+ */
+class BiasSimulator implements AutoCloseable {
+	public static final long DEFAULT_CHUNK_SIZE = 1 << 20;
+	
+	/**
+	 * Two-sided 95% normal quantile.
+	 */
+	private static final double Z = 1.959963984540054;
+	
+	/**
+	 * Counts of a simulation run.
+	 */
+	static class Result {
+		public long samples;
+		
+		/**
+		 * Samples by {@link Scorer#quadrant(int, int)}.
+		 */
+		public final long[] quadrants = new long[4];
+		
+		/**
+		 * Samples by raw scores minus their minimums,
+		 * {@code [(economic - min) * width + social - min]}.
+		 */
+		public final long[] histogram;
+		
+		public final int width;
+		
+		Result(int height, int width) {
+			this.histogram = new long[height * width];
+			this.width = width;
+		}
+		
+		Result merge(Result r) {
+			samples += r.samples;
+			for (int i = 0; i < quadrants.length; ++i)
+				quadrants[i] += r.quadrants[i];
+			for (int i = 0; i < histogram.length; ++i)
+				histogram[i] += r.histogram[i];
+			return this;
+		}
+		
+		public double quadrant(int quadrant) {
+			return (double) quadrants[quadrant] / samples;
+		}
+		
+		/**
+		 * 95% Wilson score interval for the probability of a quadrant.
+		 */
+		public double[] interval(int quadrant) {
+			double p = quadrant(quadrant);
+			double z2n = Z * Z / samples;
+			double center = (p + z2n / 2) / (1 + z2n);
+			double half = Z * Math.sqrt(p * (1 - p) / samples + z2n / samples / 4) /
+					(1 + z2n);
+			return new double[] {center - half, center + half};
+		}
+		
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder(String.format("N=%d", samples));
+			String[] names = {"LL", "RL", "LA", "RA"};
+			for (int q = 0; q < quadrants.length; ++q) {
+				double[] interval = interval(q);
+				builder.append(String.format(", %s=%.4f [%.4f, %.4f]",
+						names[q], quadrant(q), interval[0], interval[1]));
+			}
+			return builder.toString();
+		}
+	}
+	
+	private final Scorer scorer;
+	
+	private final TableScorer table;
+	
+	private final AnswerModel model;
+	
+	private final long chunkSize;
+	
+	private final ForkJoinPool pool;
+	
+	public BiasSimulator(Scorer scorer, AnswerModel model) {
+		this(scorer, model, DEFAULT_CHUNK_SIZE,
+				Runtime.getRuntime().availableProcessors());
+	}
+	
+	public BiasSimulator(Scorer scorer, AnswerModel model, long chunkSize,
+			int parallelism) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException(String.format(
+					"Chunk size (%d) needs to be positive.", chunkSize));
+		
+		this.scorer = scorer;
+		this.table = new TableScorer(scorer);
+		this.model = model;
+		this.chunkSize = chunkSize;
+		this.pool = new ForkJoinPool(parallelism);
+	}
+	
+	private class Chunk extends RecursiveTask<Result> {
+		private static final long serialVersionUID = 1L;
+		
+		private final SplittableRandom random;
+		
+		private final long samples;
+		
+		public Chunk(SplittableRandom random, long samples) {
+			this.random = random;
+			this.samples = samples;
+		}
+		
+		@Override
+		protected Result compute() {
+			if (samples > chunkSize) {
+				Chunk left = new Chunk(random.split(), samples >>> 1);
+				Chunk right = new Chunk(random, samples - (samples >>> 1));
+				left.fork();
+				return right.compute().merge(left.join());
+			}
+			
+			int economicMin = scorer.min(QuestionInt.ECONOMIC);
+			int socialMin = scorer.min(QuestionInt.SOCIAL);
+			Result result = new Result(
+					scorer.max(QuestionInt.ECONOMIC) - economicMin + 1,
+					scorer.max(QuestionInt.SOCIAL) - socialMin + 1);
+			long[] histogram = result.histogram;
+			long[] quadrants = result.quadrants;
+			int width = result.width;
+			
+			int[] answers = new int[Questions.COUNT];
+			for (long i = 0; i < samples; ++i) {
+				model.sample(random, answers);
+				AnswerVector response = AnswerVector.of(answers);
+				long packed = table.packed(response.low, response.high);
+				int e = TableScorer.economic(packed), s = TableScorer.social(packed);
+				++histogram[(e - economicMin) * width + s - socialMin];
+				++quadrants[scorer.quadrant(e, s)];
+			}
+			result.samples = samples;
+			return result;
+		}
+	}
+	
+	public Result run(long samples, long seed) {
+		if (samples < 1)
+			throw new IllegalArgumentException(String.format(
+					"Number of samples (%d) needs to be positive.", samples));
+		
+		return pool.invoke(new Chunk(new SplittableRandom(seed), samples));
+	}
+	
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+}
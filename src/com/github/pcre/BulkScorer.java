@@ -0,0 +1,141 @@
+package com.github.pcre;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scores large numbers of respondents on a {@link ForkJoinPool}.
+ *
+ * <p>
+ * The respondents are split in halves until they're no larger than the chunk
+ * size, and each chunk is scored with a {@link TableScorer}. Scores are
+ * written to the output arrays at the respondents' own indices, so they come
+ * out in input order without any locking, and each chunk keeps its own
+ * {@link Summary} that is merged with its sibling's when the halves are
+ * joined.
+ */
+class BulkScorer implements AutoCloseable {
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+	
+	/**
+	 * Totals over a set of respondents.
+	 */
+	static class Summary {
+		public long count;
+		
+		public double economic, social;
+		
+		/**
+		 * Respondents by {@link Scorer#quadrant(int, int)}.
+		 */
+		public final long[] quadrants = new long[4];
+		
+		public Summary merge(Summary s) {
+			count += s.count;
+			economic += s.economic;
+			social += s.social;
+			for (int i = 0; i < quadrants.length; ++i)
+				quadrants[i] += s.quadrants[i];
+			return this;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format(
+					"N=%d, E=%.2f, S=%.2f, LL=%d, RL=%d, LA=%d, RA=%d",
+					count, economic / count, social / count,
+					quadrants[0], quadrants[1], quadrants[2], quadrants[3]);
+		}
+	}
+	
+	private final TableScorer scorer;
+	
+	private final int chunkSize;
+	
+	private final ForkJoinPool pool;
+	
+	public BulkScorer(Scorer scorer) {
+		this(scorer, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+	
+	public BulkScorer(Scorer scorer, int chunkSize, int parallelism) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException(String.format(
+					"Chunk size (%d) needs to be positive.", chunkSize));
+		
+		this.scorer = new TableScorer(scorer);
+		this.chunkSize = chunkSize;
+		this.pool = new ForkJoinPool(parallelism);
+	}
+	
+	private class Chunk extends RecursiveTask<Summary> {
+		private static final long serialVersionUID = 1L;
+		
+		private final PackedAnswers answers;
+		
+		private final float[] economic, social;
+		
+		private final int from, to;
+		
+		public Chunk(PackedAnswers answers, float[] economic, float[] social,
+				int from, int to) {
+			this.answers = answers;
+			this.economic = economic;
+			this.social = social;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected Summary compute() {
+			if (to - from > chunkSize) {
+				int middle = (from + to) >>> 1;
+				Chunk left = new Chunk(answers, economic, social, from, middle);
+				Chunk right = new Chunk(answers, economic, social, middle, to);
+				left.fork();
+				return right.compute().merge(left.join());
+			}
+			
+			Scorer normalizer = scorer.scorer();
+			Summary summary = new Summary();
+			double economicSum = 0, socialSum = 0;
+			for (int i = from; i < to; ++i) {
+				long packed = scorer.packed(answers.low(i), answers.high(i));
+				int e = TableScorer.economic(packed), s = TableScorer.social(packed);
+				float economicScore = normalizer.economic(e);
+				float socialScore = normalizer.social(s);
+				if (economic != null) {
+					economic[i] = economicScore;
+					social[i] = socialScore;
+				}
+				economicSum += economicScore;
+				socialSum += socialScore;
+				++summary.quadrants[normalizer.quadrant(e, s)];
+			}
+			summary.count = to - from;
+			summary.economic = economicSum;
+			summary.social = socialSum;
+			return summary;
+		}
+	}
+	
+	/**
+	 * Scores every respondent into {@code economic} and {@code social}, which
+	 * may both be {@code null} if only the summary is wanted.
+	 */
+	public Summary score(PackedAnswers answers, float[] economic, float[] social) {
+		int size = answers.size();
+		if ((economic == null) != (social == null) ||
+				economic != null &&
+				(economic.length < size || social.length < size))
+			throw new IllegalArgumentException(String.format(
+					"Scores need room for %d respondents.", size));
+		
+		return pool.invoke(new Chunk(answers, economic, social, 0, size));
+	}
+	
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,146 @@
+package com.github.pcre;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.pcre.PCReversal.ScoreFloat;
+import com.github.pcre.PCReversal.ScoreInt;
+
+/**
+ * Remembers the scores of the most recent probes, keyed by {@link ProbeKey},
+ * and only passes on probes it hasn't seen to the {@link Prober} it wraps.
+ *
+ * <p>
+ * The website scores a page the same way every time, so the base probe of
+ * each page, and every probe of a rerun, can be answered from memory. Once
+ * the cache is full, the probe used least recently is dropped. Two threads
+ * sending the same probe at the same time may both pass it on.
+ *
+ * <p>
+ * Opened on a file, every probe passed on is also appended to a
+ * {@link ProbeJournal} there, and the cache starts with what's already in it,
+ * so a run that dies halfway can be started again without sending the probes
+ * it had got to.
+ */
+class CachingProber implements Prober, AutoCloseable {
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	
+	private final Prober prober;
+	
+	/**
+	 * {@link ScoreInt} or {@link ScoreFloat} by probe, in access order.
+	 */
+	private final LinkedHashMap<ProbeKey, Object> scores;
+	
+	private ProbeJournal journal;
+	
+	private long hits, misses;
+	
+	public CachingProber(Prober prober) {
+		this(prober, DEFAULT_CAPACITY);
+	}
+	
+	public CachingProber(Prober prober, int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException(String.format(
+					"Capacity (%d) needs to be positive.", capacity));
+		
+		this.prober = prober;
+		this.scores = new LinkedHashMap<ProbeKey, Object>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ProbeKey, Object> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+	
+	/**
+	 * @param path journal to fill the cache from, if it exists, and to append
+	 * probes to
+	 */
+	public static CachingProber open(Prober prober, int capacity, Path path)
+			throws IOException {
+		CachingProber cache = new CachingProber(prober, capacity);
+		cache.journal = ProbeJournal.open(
+				path, ProbeJournal.DEFAULT_BATCH, cache.scores::put);
+		return cache;
+	}
+	
+	@Override
+	public ScoreInt score1Through5(int page, AnswerVector response, ScoreInt carry)
+			throws IOException {
+		ProbeKey key = ProbeKey.of(page, response, carry);
+		ScoreInt score = (ScoreInt) get(key);
+		if (score == null) {
+			score = prober.score1Through5(page, response, carry);
+			put(key, score);
+		}
+		return score;
+	}
+	
+	@Override
+	public ScoreFloat score6(AnswerVector response, ScoreInt carry)
+			throws IOException {
+		ProbeKey key = ProbeKey.of(6, response, carry);
+		ScoreFloat score = (ScoreFloat) get(key);
+		if (score == null) {
+			score = prober.score6(response, carry);
+			put(key, score);
+		}
+		return score;
+	}
+	
+	private synchronized Object get(ProbeKey key) {
+		Object score = scores.get(key);
+		if (score == null)
+			++misses;
+		else
+			++hits;
+		return score;
+	}
+	
+	private synchronized void put(ProbeKey key, Object score) throws IOException {
+		scores.put(key, score);
+		if (journal != null)
+			journal.append(key, score);
+	}
+	
+	public synchronized int size() {
+		return scores.size();
+	}
+	
+	/**
+	 * Probes answered from the cache.
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+	
+	/**
+	 * Probes passed on.
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+	
+	/**
+	 * Probes read back from the journal when the cache was opened, or 0 if it
+	 * wasn't opened on one.
+	 */
+	public int replayed() {
+		return journal == null ? 0 : journal.replayed();
+	}
+	
+	/**
+	 * Closes the journal if it was opened on one.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (journal != null)
+			journal.close();
+	}
+}
@@ -0,0 +1,376 @@
+package com.github.pcre;
+
+import static com.github.pcre.PCReversal.QUESTIONS;
+import static com.github.pcre.Questions.COUNT;
+import static com.github.pcre.Questions.OFFSETS;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import com.github.pcre.PCReversal.QuestionInt;
+
+/**
+ * Scoring chart: the axis of every question and its increment for every
+ * answer, in arrays indexed by question ordinal (see
+ * {@link Questions#ordinal(int, int)}), along with the version of the test
+ * it was taken from, e.g. 20161110.
+ *
+ * <p>
+ * A chart can be read from the text rows printed by {@link PCReversal} or
+ * from a workbook, and saved to and loaded from a binary snapshot. All
+ * values in a snapshot are little-endian. It starts with a 16 byte header:
+ * <li>
+ * "PCRC" in ASCII
+ * <li>
+ * Format version ({@code int}, currently 1)
+ * <li>
+ * Version of the chart ({@code int})
+ * <li>
+ * Number of questions ({@code int}, 62)
+ * </li>
+ *
+ * <p>
+ * followed by one 7 byte record per question, its axis ({@code byte}) and
+ * its increments for "Disagree", "Agree" and "Strongly Agree"
+ * ({@code short}s), and ends with a CRC32 of everything before it
+ * ({@code int}).
+ */
+final class Chart {
+	private static final int MAGIC = 'P' | 'C' << 8 | 'R' << 16 | 'C' << 24;
+	
+	/**
+	 * What a zip file, like an xlsx workbook, starts with.
+	 */
+	private static final int ZIP = 'P' | 'K' << 8 | 3 << 16 | 4 << 24;
+	
+	private static final int FORMAT = 1;
+	
+	private static final int HEADER = 16;
+	
+	private static final int RECORD = 7;
+	
+	private static final int SIZE = HEADER + COUNT * RECORD + 4;
+	
+	public final int version;
+	
+	private final byte[] axes;
+	
+	/**
+	 * Increments by question ordinal and answer; {@code [ordinal * 4 + answer]}.
+	 */
+	private final int[] increments;
+	
+	/**
+	 * Extreme raw scores by axis.
+	 */
+	private final int[] min = new int[2], max = new int[2];
+	
+	/**
+	 * Takes the arrays as they are, without copying them.
+	 *
+	 * @param axes by question ordinal
+	 * @param increments by question ordinal and answer,
+	 * {@code [ordinal * 4 + answer]}
+	 */
+	Chart(int version, byte[] axes, int[] increments) {
+		this.version = version;
+		this.axes = axes;
+		this.increments = increments;
+		
+		for (int ordinal = 0; ordinal < COUNT; ++ordinal) {
+			if (axes[ordinal] != QuestionInt.ECONOMIC && axes[ordinal] != QuestionInt.SOCIAL)
+				throw new IllegalArgumentException(String.format(
+						"Axis (%d) of question #%d needs to be either ECONOMIC (%d) " +
+						"or SOCIAL (%d).",
+						axes[ordinal], ordinal, QuestionInt.ECONOMIC, QuestionInt.SOCIAL));
+			
+			int low = 0, high = 0;
+			for (int answer = 1; answer < 4; ++answer) {
+				low = Math.min(low, increments[ordinal * 4 + answer]);
+				high = Math.max(high, increments[ordinal * 4 + answer]);
+			}
+			min[axes[ordinal]] += low;
+			max[axes[ordinal]] += high;
+		}
+	}
+	
+	/**
+	 * @param chart rows laid out like {@link PCReversal#QUESTIONS}, i.e.
+	 * {@code chart[page - 1][question - 1]}
+	 */
+	public Chart(int version, QuestionInt[][] chart) {
+		this(version, axes(chart), increments(chart));
+	}
+	
+	private static byte[] axes(QuestionInt[][] chart) {
+		if (chart.length != QUESTIONS.length)
+			throw new IllegalArgumentException(String.format(
+					"Chart has %d pages but there are %d.",
+					chart.length, QUESTIONS.length));
+		
+		byte[] axes = new byte[COUNT];
+		for (int page = 0; page < QUESTIONS.length; ++page) {
+			if (chart[page].length != QUESTIONS[page].length)
+				throw new IllegalArgumentException(String.format(
+						"Chart has %d questions for page %d but there are %d.",
+						chart[page].length, page + 1, QUESTIONS[page].length));
+			
+			for (int q = 0; q < chart[page].length; ++q) {
+				if (chart[page][q] == null)
+					throw new IllegalArgumentException(String.format(
+							"Chart is missing question %d on page %d.",
+							q + 1, page + 1));
+				axes[OFFSETS[page] + q] = (byte) chart[page][q].axis;
+			}
+		}
+		return axes;
+	}
+	
+	/**
+	 * Called after {@link #axes(QuestionInt[][])} has checked the layout.
+	 */
+	private static int[] increments(QuestionInt[][] chart) {
+		int[] increments = new int[COUNT * 4];
+		for (int page = 0; page < QUESTIONS.length; ++page)
+			for (int q = 0; q < chart[page].length; ++q)
+				for (int answer = 1; answer < 4; ++answer)
+					increments[(OFFSETS[page] + q) * 4 + answer] =
+							chart[page][q].increments[answer - 1];
+		return increments;
+	}
+	
+	public int axis(int ordinal) {
+		return axes[ordinal];
+	}
+	
+	public int increment(int ordinal, int answer) {
+		return increments[ordinal * 4 + answer];
+	}
+	
+	/**
+	 * Smallest raw score the chart allows on the given axis.
+	 */
+	public int min(int axis) {
+		return min[axis];
+	}
+	
+	/**
+	 * Largest raw score the chart allows on the given axis.
+	 */
+	public int max(int axis) {
+		return max[axis];
+	}
+	
+	/**
+	 * Rows laid out like {@link PCReversal#QUESTIONS}.
+	 */
+	public QuestionInt[][] questions() {
+		QuestionInt[][] chart = new QuestionInt[QUESTIONS.length][];
+		for (int page = 0; page < QUESTIONS.length; ++page) {
+			chart[page] = new QuestionInt[QUESTIONS[page].length];
+			for (int q = 0; q < chart[page].length; ++q) {
+				int ordinal = OFFSETS[page] + q;
+				chart[page][q] = new QuestionInt(axes[ordinal], new int[] {
+						increment(ordinal, 1),
+						increment(ordinal, 2),
+						increment(ordinal, 3)
+				});
+			}
+		}
+		return chart;
+	}
+	
+	/**
+	 * Version of a chart from the name of its file, which starts with it (like
+	 * "20161110.txt"), or 0 if it doesn't.
+	 */
+	static int version(Path path) {
+		String name = path.getFileName().toString();
+		int digits = 0;
+		while (digits < name.length() && digits < 9 &&
+				Character.isDigit(name.charAt(digits)))
+			++digits;
+		return digits == 0 ? 0 : Integer.parseInt(name.substring(0, digits));
+	}
+	
+	/**
+	 * Reads a snapshot, a workbook (see {@link XlsxChart}) or text rows,
+	 * whichever the file holds.
+	 */
+	public static Chart open(Path path) throws IOException {
+		byte[] magic = new byte[4];
+		int read = 0;
+		try (InputStream input = Files.newInputStream(path)) {
+			int n;
+			while (read < magic.length &&
+					(n = input.read(magic, read, magic.length - read)) > 0)
+				read += n;
+		}
+		if (read == magic.length) {
+			int m = ByteBuffer.wrap(magic).order(ByteOrder.LITTLE_ENDIAN).getInt();
+			if (m == MAGIC)
+				return load(path);
+			if (m == ZIP)
+				return XlsxChart.read(path);
+		}
+		return read(path);
+	}
+	
+	/**
+	 * Reads a chart in the format printed by {@link PCReversal#main(String[])},
+	 * one row per question:
+	 *
+	 * <p>
+	 * %d %d [ES] 0 %d %d %d
+	 *
+	 * <p>
+	 * Blank lines and lines starting with {@code #} are skipped. The version
+	 * comes from the name of the file; see {@link #version(Path)}.
+	 */
+	public static Chart read(Path path) throws IOException {
+		QuestionInt[][] chart = new QuestionInt[QUESTIONS.length][];
+		for (int page = 0; page < QUESTIONS.length; ++page)
+			chart[page] = new QuestionInt[QUESTIONS[page].length];
+		
+		try (BufferedReader reader = Files.newBufferedReader(
+				path, StandardCharsets.UTF_8)) {
+			String line = null;
+			int number = 0;
+			while ((line = reader.readLine()) != null) {
+				++number;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				
+				String[] fields = line.split("\\s+");
+				if (fields.length != 7)
+					throw new IllegalArgumentException(String.format(
+							"Line %d of %s has %d fields instead of 7.",
+							number, path, fields.length));
+				
+				try {
+					int page = Integer.parseInt(fields[0]);
+					int question = Integer.parseInt(fields[1]);
+					if (page < 1 || page > chart.length ||
+							question < 1 || question > chart[page - 1].length)
+						throw new IllegalArgumentException(String.format(
+								"Line %d of %s refers to question %d on page %d, " +
+								"which doesn't exist.",
+								number, path, question, page));
+					
+					int axis;
+					if (fields[2].equals("E"))
+						axis = QuestionInt.ECONOMIC;
+					else if (fields[2].equals("S"))
+						axis = QuestionInt.SOCIAL;
+					else
+						throw new IllegalArgumentException(String.format(
+								"Line %d of %s has axis %s instead of E or S.",
+								number, path, fields[2]));
+					
+					chart[page - 1][question - 1] = new QuestionInt(axis, new int[] {
+							Integer.parseInt(fields[4]),
+							Integer.parseInt(fields[5]),
+							Integer.parseInt(fields[6])
+					});
+				} catch (NumberFormatException x) {
+					throw new IllegalArgumentException(String.format(
+							"Line %d of %s isn't made of integers: %s",
+							number, path, line), x);
+				}
+			}
+		}
+		return new Chart(version(path), chart);
+	}
+	
+	/**
+	 * Loads a snapshot written by {@link #save(Path)}.
+	 *
+	 * @throws IllegalArgumentException if the file isn't a snapshot, is in
+	 * another format or is corrupt
+	 */
+	public static Chart load(Path path) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() != SIZE)
+				throw new IllegalArgumentException(String.format(
+						"%s is %d bytes but a chart snapshot is %d.",
+						path, channel.size(), SIZE));
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, SIZE);
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		
+		if (buffer.getInt(0) != MAGIC)
+			throw new IllegalArgumentException(String.format(
+					"%s isn't a chart snapshot.", path));
+		int format = buffer.getInt(4);
+		if (format != FORMAT)
+			throw new IllegalArgumentException(String.format(
+					"%s is in format %d but only %d is supported.",
+					path, format, FORMAT));
+		int count = buffer.getInt(12);
+		if (count != COUNT)
+			throw new IllegalArgumentException(String.format(
+					"%s has %d questions but there are %d.",
+					path, count, COUNT));
+		
+		CRC32 crc = new CRC32();
+		ByteBuffer checked = buffer.duplicate();
+		checked.limit(SIZE - 4);
+		crc.update(checked);
+		if ((int) crc.getValue() != buffer.getInt(SIZE - 4))
+			throw new IllegalArgumentException(String.format(
+					"%s is corrupt; its checksum doesn't match.", path));
+		
+		byte[] axes = new byte[COUNT];
+		int[] increments = new int[COUNT * 4];
+		for (int ordinal = 0; ordinal < COUNT; ++ordinal) {
+			int record = HEADER + ordinal * RECORD;
+			axes[ordinal] = buffer.get(record);
+			for (int answer = 1; answer < 4; ++answer)
+				increments[ordinal * 4 + answer] =
+						buffer.getShort(record + 1 + (answer - 1) * 2);
+		}
+		return new Chart(buffer.getInt(8), axes, increments);
+	}
+	
+	/**
+	 * Saves a snapshot, replacing the file only once it's fully written.
+	 *
+	 * @throws IllegalArgumentException if an increment doesn't fit in a
+	 * {@code short}
+	 */
+	public void save(Path path) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(FORMAT).putInt(version).putInt(COUNT);
+		for (int ordinal = 0; ordinal < COUNT; ++ordinal) {
+			buffer.put(axes[ordinal]);
+			for (int answer = 1; answer < 4; ++answer) {
+				int increment = increment(ordinal, answer);
+				if (increment != (short) increment)
+					throw new IllegalArgumentException(String.format(
+							"Increment (%d) of question #%d doesn't fit in a snapshot.",
+							increment, ordinal));
+				buffer.putShort((short) increment);
+			}
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putInt((int) crc.getValue());
+		
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		Files.write(temporary, buffer.array());
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+	}
+}
@@ -0,0 +1,334 @@
+package com.github.pcre;
+
+import static com.github.pcre.Questions.COUNT;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import com.github.pcre.PCReversal.QuestionInt;
+
+/**
+ * Every chart reconstructed so far, by the date it was probed on (its
+ * {@link Chart#version}), and what changed from one to another.
+ *
+ * <p>
+ * Charts are kept whole in memory, so looking one up or diffing two takes
+ * microseconds, but on disk each one is stored as the questions that changed
+ * since the one before; since the website only changes a few questions at a
+ * time, if any, years of charts take a few kilobytes. All values are
+ * little-endian. The file starts with a 12 byte header:
+ * <li>
+ * "PCRH" in ASCII
+ * <li>
+ * Format version ({@code int}, currently 1)
+ * <li>
+ * Number of questions ({@code int}, 62)
+ * </li>
+ *
+ * <p>
+ * followed by each chart, oldest first, as its version ({@code int}), the
+ * number of questions that changed ({@code short}) and, for each of them, its
+ * ordinal and axis ({@code byte}s) and its increments for "Disagree", "Agree"
+ * and "Strongly Agree" ({@code short}s). The first chart is stored as changes
+ * from a chart of all zeros. The file ends with a CRC32 of everything before
+ * it ({@code int}).
+ */
+final class ChartHistory {
+	private static final int MAGIC = 'P' | 'C' << 8 | 'R' << 16 | 'H' << 24;
+	
+	private static final int FORMAT = 1;
+	
+	private static final int HEADER = 12;
+	
+	private static final int CHANGE = 8;
+	
+	private final TreeMap<Integer, Chart> charts = new TreeMap<>();
+	
+	/**
+	 * What changed from one chart to another.
+	 */
+	static class Diff {
+		/**
+		 * Questions that changed axis or increments, by ordinal.
+		 */
+		public final List<Change> changes;
+		
+		/**
+		 * Range of raw scores by axis before and after:
+		 * {@code [axis][0]} is the minimum and {@code [axis][1]} the maximum.
+		 */
+		public final int[][] before, after;
+		
+		Diff(List<Change> changes, int[][] before, int[][] after) {
+			this.changes = changes;
+			this.before = before;
+			this.after = after;
+		}
+		
+		public boolean isEmpty() {
+			return changes.isEmpty();
+		}
+		
+		/**
+		 * Shift of the minimum ({@code [axis][0]}) and maximum
+		 * ({@code [axis][1]}) raw scores by axis, which changes how every raw
+		 * score on that axis is normalized.
+		 */
+		public int[][] shift() {
+			int[][] shift = new int[2][2];
+			for (int axis = 0; axis < 2; ++axis)
+				for (int i = 0; i < 2; ++i)
+					shift[axis][i] = after[axis][i] - before[axis][i];
+			return shift;
+		}
+		
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder(String.format(
+					"%d questions changed; economic [%d, %d] -> [%d, %d], " +
+					"social [%d, %d] -> [%d, %d]",
+					changes.size(),
+					before[QuestionInt.ECONOMIC][0], before[QuestionInt.ECONOMIC][1],
+					after[QuestionInt.ECONOMIC][0], after[QuestionInt.ECONOMIC][1],
+					before[QuestionInt.SOCIAL][0], before[QuestionInt.SOCIAL][1],
+					after[QuestionInt.SOCIAL][0], after[QuestionInt.SOCIAL][1]));
+			for (Change change : changes)
+				builder.append('\n').append(change);
+			return builder.toString();
+		}
+	}
+	
+	/**
+	 * A question that changed axis or increments.
+	 */
+	static class Change {
+		public final int ordinal;
+		
+		public final QuestionInt before, after;
+		
+		Change(int ordinal, QuestionInt before, QuestionInt after) {
+			this.ordinal = ordinal;
+			this.before = before;
+			this.after = after;
+		}
+		
+		public boolean axisChanged() {
+			return before.axis != after.axis;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("%d\t%d\t%s\t->\t%s",
+					Questions.page(ordinal), Questions.question(ordinal),
+					before, after);
+		}
+	}
+	
+	/**
+	 * Loads a history saved by {@link #save(Path)}, or starts an empty one if
+	 * the file doesn't exist.
+	 */
+	public static ChartHistory open(Path path) throws IOException {
+		ChartHistory history = new ChartHistory();
+		if (!Files.exists(path))
+			return history;
+		
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path))
+				.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.remaining() < HEADER + 4 || buffer.getInt(0) != MAGIC)
+			throw new IllegalArgumentException(String.format(
+					"%s isn't a chart history.", path));
+		int format = buffer.getInt(4);
+		if (format != FORMAT)
+			throw new IllegalArgumentException(String.format(
+					"%s is in format %d but only %d is supported.",
+					path, format, FORMAT));
+		int count = buffer.getInt(8);
+		if (count != COUNT)
+			throw new IllegalArgumentException(String.format(
+					"%s has charts of %d questions but there are %d.",
+					path, count, COUNT));
+		
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.limit() - 4);
+		if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4))
+			throw new IllegalArgumentException(String.format(
+					"%s is corrupt; its checksum doesn't match.", path));
+		
+		byte[] axes = new byte[COUNT];
+		int[] increments = new int[COUNT * 4];
+		buffer.position(HEADER);
+		buffer.limit(buffer.limit() - 4);
+		try {
+			while (buffer.hasRemaining()) {
+				int version = buffer.getInt();
+				int changes = buffer.getShort();
+				for (int i = 0; i < changes; ++i) {
+					int ordinal = buffer.get();
+					if (ordinal < 0 || ordinal >= COUNT)
+						throw new IllegalArgumentException(String.format(
+								"%s changes question #%d in chart %d, which doesn't " +
+								"exist.",
+								path, ordinal, version));
+					axes[ordinal] = buffer.get();
+					for (int answer = 1; answer < 4; ++answer)
+						increments[ordinal * 4 + answer] = buffer.getShort();
+				}
+				history.charts.put(version,
+						new Chart(version, axes.clone(), increments.clone()));
+			}
+		} catch (BufferUnderflowException x) {
+			throw new IllegalArgumentException(String.format(
+					"%s ends in the middle of a chart.", path), x);
+		}
+		return history;
+	}
+	
+	/**
+	 * Adds a chart, replacing any with the same version.
+	 */
+	public void add(Chart chart) {
+		charts.put(chart.version, chart);
+	}
+	
+	/**
+	 * Versions of all the charts, oldest first.
+	 */
+	public List<Integer> versions() {
+		return Collections.unmodifiableList(new ArrayList<>(charts.keySet()));
+	}
+	
+	/**
+	 * @return chart with the given version, or {@code null}
+	 */
+	public Chart get(int version) {
+		return charts.get(version);
+	}
+	
+	/**
+	 * @return chart in use on the given date, i.e. the latest one probed on or
+	 * before it, or {@code null}
+	 */
+	public Chart at(int date) {
+		Map.Entry<Integer, Chart> entry = charts.floorEntry(date);
+		return entry == null ? null : entry.getValue();
+	}
+	
+	/**
+	 * @throws IllegalArgumentException if either version isn't in the history
+	 */
+	public Diff diff(int from, int to) {
+		for (int version : new int[] {from, to})
+			if (!charts.containsKey(version))
+				throw new IllegalArgumentException(String.format(
+						"There's no chart %d in the history.", version));
+		return diff(charts.get(from), charts.get(to));
+	}
+	
+	public static Diff diff(Chart from, Chart to) {
+		List<Change> changes = new ArrayList<>();
+		QuestionInt[][] before = null, after = null;
+		for (int ordinal = 0; ordinal < COUNT; ++ordinal) {
+			if (same(from, to, ordinal))
+				continue;
+			if (before == null) {
+				before = from.questions();
+				after = to.questions();
+			}
+			int page = Questions.page(ordinal) - 1, q = Questions.question(ordinal) - 1;
+			changes.add(new Change(ordinal, before[page][q], after[page][q]));
+		}
+		return new Diff(changes, bounds(from), bounds(to));
+	}
+	
+	private static boolean same(Chart a, Chart b, int ordinal) {
+		if (a.axis(ordinal) != b.axis(ordinal))
+			return false;
+		for (int answer = 1; answer < 4; ++answer)
+			if (a.increment(ordinal, answer) != b.increment(ordinal, answer))
+				return false;
+		return true;
+	}
+	
+	private static int[][] bounds(Chart chart) {
+		return new int[][] {
+				{chart.min(QuestionInt.ECONOMIC), chart.max(QuestionInt.ECONOMIC)},
+				{chart.min(QuestionInt.SOCIAL), chart.max(QuestionInt.SOCIAL)}
+		};
+	}
+	
+	/**
+	 * Writes the history, replacing the file only once it's fully written.
+	 *
+	 * @throws IllegalArgumentException if an increment doesn't fit in a
+	 * {@code short}
+	 */
+	public void save(Path path) throws IOException {
+		int size = HEADER + 4;
+		Chart previous = null;
+		for (Chart chart : charts.values()) {
+			size += 6 + changed(previous, chart).size() * CHANGE;
+			previous = chart;
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(FORMAT).putInt(COUNT);
+		previous = null;
+		for (Chart chart : charts.values()) {
+			List<Integer> changed = changed(previous, chart);
+			buffer.putInt(chart.version).putShort((short) changed.size());
+			for (int ordinal : changed) {
+				buffer.put((byte) ordinal).put((byte) chart.axis(ordinal));
+				for (int answer = 1; answer < 4; ++answer) {
+					int increment = chart.increment(ordinal, answer);
+					if (increment != (short) increment)
+						throw new IllegalArgumentException(String.format(
+								"Increment (%d) of question #%d in chart %d doesn't " +
+								"fit in a history.",
+								increment, ordinal, chart.version));
+					buffer.putShort((short) increment);
+				}
+			}
+			previous = chart;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putInt((int) crc.getValue());
+		
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		Files.write(temporary, buffer.array());
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	/**
+	 * Ordinals of questions that differ between two charts, or that aren't all
+	 * zeros if there's no chart before.
+	 */
+	private static List<Integer> changed(Chart before, Chart after) {
+		List<Integer> changed = new ArrayList<>();
+		for (int ordinal = 0; ordinal < COUNT; ++ordinal) {
+			boolean same;
+			if (before != null) {
+				same = same(before, after, ordinal);
+			} else {
+				same = after.axis(ordinal) == 0;
+				for (int answer = 1; answer < 4; ++answer)
+					same &= after.increment(ordinal, answer) == 0;
+			}
+			if (!same)
+				changed.add(ordinal);
+		}
+		return changed;
+	}
+}
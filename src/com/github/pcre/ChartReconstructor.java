@@ -0,0 +1,289 @@
+package com.github.pcre;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.github.pcre.PCReversal.QuestionFloat;
+import com.github.pcre.PCReversal.QuestionInt;
+import com.github.pcre.PCReversal.ScoreFloat;
+import com.github.pcre.PCReversal.ScoreInt;
+
+/**
+ * Reconstructs the scoring chart by probing pages with different answers and
+ * comparing the scores against a base score for each page.
+ *
+ * <p>
+ * One way is to probe every answer to every question on its own, 3 probes per
+ * question plus one per page, which is what {@link PCReversal#pages1Through5()}
+ * and {@link PCReversal#page6()} do. The other, used when probes are
+ * combined, is to probe with fewer:
+ * <li>
+ * Each question is probed with "Strongly Agree" on its own, which tells both
+ * which axis it's on and its last increment. A question that doesn't move
+ * either axis with "Strongly Agree" doesn't move it with any other answer
+ * either, since increments are monotonic, so it's done.
+ * <li>
+ * Since each probe gives back a score on both axes, the remaining "Disagree"
+ * and "Agree" increments are measured two at a time, pairing one economic
+ * question with one social question in each probe.
+ * </li>
+ *
+ * <p>
+ * Each axis of a probe can only tell apart one unknown, since every question
+ * is answered once and contributes its whole increment, so how much combining
+ * saves depends on how evenly a page's questions are split between the axes.
+ *
+ * <p>
+ * Probes that don't depend on each other's results (the base scores and the
+ * first round of probes for all pages, then the pairs) are sent in batches, up
+ * to a given number at a time.
+ */
+class ChartReconstructor {
+	public static final int DEFAULT_IN_FLIGHT = 8;
+	
+	private final Prober prober;
+	
+	private final boolean combine;
+	
+	private final int inFlight;
+	
+	private int probes;
+	
+	/**
+	 * Combines probes and sends up to {@link #DEFAULT_IN_FLIGHT} at a time.
+	 */
+	public ChartReconstructor(Prober prober) {
+		this(prober, true, DEFAULT_IN_FLIGHT);
+	}
+	
+	/**
+	 * @param combine whether to measure two questions per probe
+	 * @param inFlight most probes to send at a time
+	 */
+	public ChartReconstructor(Prober prober, boolean combine, int inFlight) {
+		if (inFlight < 1)
+			throw new IllegalArgumentException(String.format(
+					"Number of probes in flight (%d) needs to be positive.",
+					inFlight));
+		
+		this.prober = prober;
+		this.combine = combine;
+		this.inFlight = inFlight;
+	}
+	
+	/**
+	 * Probes sent so far.
+	 */
+	public int probes() {
+		return probes;
+	}
+	
+	private interface Probe {
+		/**
+		 * Economic and social score for answers to a single page.
+		 */
+		double[] score(int page, AnswerVector response) throws IOException;
+	}
+	
+	/**
+	 * A probe to send, and its score once it's been sent.
+	 */
+	private static class Request {
+		public final int page;
+		
+		public final AnswerVector response;
+		
+		public double[] score;
+		
+		public Request(int page, AnswerVector response) {
+			this.page = page;
+			this.response = response;
+		}
+	}
+	
+	public QuestionInt[][] pages1Through5() throws IOException {
+		return pages(1, 2, 3, 4, 5);
+	}
+	
+	public QuestionInt[] page(int page) throws IOException {
+		return pages(page)[0];
+	}
+	
+	private QuestionInt[][] pages(int... pages) throws IOException {
+		for (int page : pages)
+			if (page < 1 || page > 5)
+				throw new IllegalArgumentException(String.format(
+						"Page (%d) needs to be in [1, 5]; use page6() for page 6.",
+						page));
+		
+		double[][][] rows = reconstruct(pages, (page, response) -> {
+			ScoreInt score = prober.score1Through5(page, response, new ScoreInt(0, 0));
+			return new double[] {score.economic, score.social};
+		});
+		
+		QuestionInt[][] chart = new QuestionInt[pages.length][];
+		for (int p = 0; p < pages.length; ++p) {
+			chart[p] = new QuestionInt[rows[p].length];
+			for (int q = 0; q < rows[p].length; ++q)
+				chart[p][q] = new QuestionInt((int) rows[p][q][0], new int[] {
+						(int) Math.round(rows[p][q][1]),
+						(int) Math.round(rows[p][q][2]),
+						(int) Math.round(rows[p][q][3])
+				});
+		}
+		return chart;
+	}
+	
+	public QuestionFloat[] page6() throws IOException {
+		double[][] rows = reconstruct(new int[] {6}, (page, response) -> {
+			ScoreFloat score = prober.score6(response, new ScoreInt(0, 0));
+			return new double[] {score.economic, score.social};
+		})[0];
+		
+		QuestionFloat[] questions = new QuestionFloat[rows.length];
+		for (int q = 0; q < rows.length; ++q)
+			questions[q] = new QuestionFloat((int) rows[q][0], new float[] {
+					(float) rows[q][1],
+					(float) rows[q][2],
+					(float) rows[q][3]
+			});
+		return questions;
+	}
+	
+	/**
+	 * @return axis and increments for "Disagree", "Agree" and "Strongly Agree"
+	 * by page and question
+	 */
+	private double[][][] reconstruct(int[] pages, Probe probe) throws IOException {
+		double[][][] rows = new double[pages.length][][];
+		Request[] bases = new Request[pages.length];
+		Request[][][] singles = new Request[pages.length][][];
+		List<Request> batch = new ArrayList<>();
+		
+		for (int p = 0; p < pages.length; ++p) {
+			int page = pages[p];
+			int length = Questions.length(page);
+			rows[p] = new double[length][4];
+			bases[p] = new Request(page, AnswerVector.ZERO);
+			batch.add(bases[p]);
+			
+			singles[p] = new Request[length][4];
+			for (int q = 0; q < length; ++q) {
+				int ordinal = Questions.ordinal(page, q + 1);
+				for (int answer = combine ? 3 : 1; answer < 4; ++answer) {
+					singles[p][q][answer] =
+							new Request(page, AnswerVector.ZERO.with(ordinal, answer));
+					batch.add(singles[p][q][answer]);
+				}
+			}
+		}
+		send(batch, probe);
+		
+		// Question and answer of each increment still to be measured, by page.
+		List<List<int[]>> economic = new ArrayList<>(), social = new ArrayList<>();
+		for (int p = 0; p < pages.length; ++p) {
+			double[] base = bases[p].score;
+			economic.add(new ArrayList<>());
+			social.add(new ArrayList<>());
+			for (int q = 0; q < rows[p].length; ++q) {
+				for (int answer = 1; answer < 4; ++answer) {
+					Request single = singles[p][q][answer];
+					if (single == null)
+						continue;
+					
+					double e = single.score[0] - base[0], s = single.score[1] - base[1];
+					if (e == 0) {
+						rows[p][q][0] = QuestionInt.SOCIAL;
+						rows[p][q][answer] = s;
+					} else {
+						assert s == 0;
+						rows[p][q][0] = QuestionInt.ECONOMIC;
+						rows[p][q][answer] = e;
+					}
+					
+					if (combine && (e != 0 || s != 0)) {
+						List<int[]> unknowns = (e == 0 ? social : economic).get(p);
+						unknowns.add(new int[] {q, 1});
+						unknowns.add(new int[] {q, 2});
+					}
+				}
+			}
+		}
+		if (!combine)
+			return rows;
+		
+		batch.clear();
+		List<int[]> pairs = new ArrayList<>();
+		for (int p = 0; p < pages.length; ++p) {
+			List<int[]> e = economic.get(p), s = social.get(p);
+			for (int i = 0; i < Math.max(e.size(), s.size()); ++i) {
+				AnswerVector response = AnswerVector.ZERO;
+				if (i < e.size())
+					response = response.with(
+							Questions.ordinal(pages[p], e.get(i)[0] + 1), e.get(i)[1]);
+				if (i < s.size())
+					response = response.with(
+							Questions.ordinal(pages[p], s.get(i)[0] + 1), s.get(i)[1]);
+				batch.add(new Request(pages[p], response));
+				pairs.add(new int[] {p, i});
+			}
+		}
+		send(batch, probe);
+		
+		for (int r = 0; r < batch.size(); ++r) {
+			int p = pairs.get(r)[0], i = pairs.get(r)[1];
+			double[] base = bases[p].score, score = batch.get(r).score;
+			if (i < economic.get(p).size()) {
+				int[] e = economic.get(p).get(i);
+				rows[p][e[0]][e[1]] = score[0] - base[0];
+			}
+			if (i < social.get(p).size()) {
+				int[] s = social.get(p).get(i);
+				rows[p][s[0]][s[1]] = score[1] - base[1];
+			}
+		}
+		return rows;
+	}
+	
+	/**
+	 * Sends all requests, up to {@link #inFlight} at a time, and waits for all
+	 * of them.
+	 */
+	private void send(List<Request> batch, Probe probe) throws IOException {
+		probes += batch.size();
+		if (inFlight == 1 || batch.size() < 2) {
+			for (Request request : batch)
+				request.score = probe.score(request.page, request.response);
+			return;
+		}
+		
+		ExecutorService executor =
+				Executors.newFixedThreadPool(Math.min(inFlight, batch.size()));
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (Request request : batch)
+				futures.add(executor.submit(() -> {
+					request.score = probe.score(request.page, request.response);
+					return null;
+				}));
+			for (Future<?> future : futures)
+				future.get();
+		} catch (ExecutionException x) {
+			if (x.getCause() instanceof IOException)
+				throw (IOException) x.getCause();
+			if (x.getCause() instanceof RuntimeException)
+				throw (RuntimeException) x.getCause();
+			throw new RuntimeException(x.getCause());
+		} catch (InterruptedException x) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while probing.", x);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
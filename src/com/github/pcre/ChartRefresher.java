@@ -0,0 +1,308 @@
+package com.github.pcre;
+
+import static com.github.pcre.PCReversal.QUESTIONS;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.pcre.PCReversal.QuestionInt;
+import com.github.pcre.PCReversal.ScoreFloat;
+import com.github.pcre.PCReversal.ScoreInt;
+
+/**
+ * Checks a stored chart against the website with a handful of probes, and
+ * only reprobes the questions whose increments have changed.
+ *
+ * <p>
+ * For each page, a fingerprint of 4 probes is compared with what the stored
+ * chart predicts: the base score, and the score with every question on the
+ * page answered "Disagree", then "Agree", then "Strongly Agree". Since every
+ * question adds its increment to one axis, a question whose increment or axis
+ * changed shows up in the fingerprint of that answer, unless another question
+ * on the same page changed so as to cancel it out exactly.
+ *
+ * <p>
+ * The questions of a page whose fingerprint is off are then bisected: half
+ * of them are probed with the same answer, and each half that's off is split
+ * again until single questions are left. Those are reprobed with every
+ * answer, like {@link ChartReconstructor} would, reusing the probes already
+ * sent. An unchanged chart costs 25 probes instead of the hundreds of a full
+ * reconstruction, and each changed question a few more.
+ *
+ * <p>
+ * Page 6 gives back normalized scores, so 1 more probe, with a score carried
+ * over to page 6, tells the range of raw scores the website normalizes with
+ * on each axis. Page 6 scores are turned back into raw scores with that range
+ * and compared like the other pages, and increments on page 6 come out as
+ * integers on the same scale as the stored chart. If the range measured
+ * doesn't match the one of the refreshed chart, some change went unnoticed,
+ * and the chart should be reconstructed from scratch.
+ */
+class ChartRefresher {
+	/**
+	 * Outcome of a refresh.
+	 */
+	static class Result {
+		/**
+		 * Refreshed chart, by page and question.
+		 */
+		public final QuestionInt[][] chart;
+		
+		/**
+		 * Questions reprobed, as ordinals.
+		 */
+		public final List<Integer> drifted;
+		
+		public final int probes;
+		
+		/**
+		 * Raw score ranges measured on page 6, by axis:
+		 * {@code [axis][0]} is the minimum and {@code [axis][1]} the maximum.
+		 */
+		public final int[][] bounds;
+		
+		Result(QuestionInt[][] chart, List<Integer> drifted, int probes,
+				int[][] bounds) {
+			this.chart = chart;
+			this.drifted = drifted;
+			this.probes = probes;
+			this.bounds = bounds;
+		}
+		
+		/**
+		 * Whether the refreshed chart normalizes scores over the same ranges as
+		 * the website.
+		 */
+		public boolean consistent() {
+			Scorer scorer = new Scorer(chart);
+			for (int axis = 0; axis < 2; ++axis)
+				if (scorer.min(axis) != bounds[axis][0] ||
+						scorer.max(axis) != bounds[axis][1])
+					return false;
+			return true;
+		}
+		
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder(String.format(
+					"%d probes, %d questions changed", probes, drifted.size()));
+			for (int ordinal : drifted) {
+				int page = Questions.page(ordinal), q = Questions.question(ordinal);
+				builder.append(String.format("\n%d\t%d\t%s",
+						page, q, chart[page - 1][q - 1]));
+			}
+			if (!consistent())
+				builder.append("\nRanges don't match; reconstruct the whole chart.");
+			return builder.toString();
+		}
+	}
+	
+	private final Prober prober;
+	
+	private final Scorer stored;
+	
+	/**
+	 * Raw scores by probe sent so far, with nothing carried over.
+	 */
+	private final Map<ProbeKey, double[]> sent = new HashMap<>();
+	
+	/**
+	 * {@code max - min} and {@code max + min} of raw scores by axis, as
+	 * measured on page 6.
+	 */
+	private final int[] range = new int[2], sum = new int[2];
+	
+	private int probes;
+	
+	public ChartRefresher(Prober prober, Scorer stored) {
+		this.prober = prober;
+		this.stored = stored;
+	}
+	
+	public Result refresh() throws IOException {
+		sent.clear();
+		probes = 0;
+		measure();
+		
+		// {axis, increments...} by ordinal, starting from the stored chart.
+		int[][] rows = new int[Questions.COUNT][4];
+		for (int ordinal = 0; ordinal < rows.length; ++ordinal) {
+			rows[ordinal][0] = stored.axis(ordinal);
+			for (int answer = 1; answer < 4; ++answer)
+				rows[ordinal][answer] = stored.increment(ordinal, answer);
+		}
+		
+		List<Integer> drifted = new ArrayList<>();
+		for (int page = 1; page <= QUESTIONS.length; ++page) {
+			List<Integer> questions = new ArrayList<>();
+			for (int q = 1; q <= Questions.length(page); ++q)
+				questions.add(Questions.ordinal(page, q));
+			
+			List<Integer> changed = new ArrayList<>();
+			for (int answer = 1; answer < 4; ++answer)
+				if (off(page, questions, answer, rows))
+					bisect(page, questions, answer, rows, changed);
+			
+			for (int ordinal : questions)
+				if (changed.contains(ordinal)) {
+					reprobe(page, ordinal, rows[ordinal]);
+					drifted.add(ordinal);
+				}
+		}
+		
+		QuestionInt[][] chart = new QuestionInt[QUESTIONS.length][];
+		for (int page = 0; page < QUESTIONS.length; ++page) {
+			chart[page] = new QuestionInt[QUESTIONS[page].length];
+			for (int q = 0; q < chart[page].length; ++q) {
+				int[] row = rows[Questions.OFFSETS[page] + q];
+				chart[page][q] = new QuestionInt(row[0],
+						new int[] {row[1], row[2], row[3]});
+			}
+		}
+		
+		int[][] bounds = new int[2][];
+		for (int axis = 0; axis < 2; ++axis)
+			bounds[axis] = new int[] {
+					(sum[axis] - range[axis]) / 2,
+					(sum[axis] + range[axis]) / 2
+			};
+		return new Result(chart, drifted, probes, bounds);
+	}
+	
+	/**
+	 * Measures the range of raw scores on each axis from the page 6 base score
+	 * and the score with the stored maximum or minimum carried over to page 6,
+	 * which is <i>10 (2 raw - max - min) / (max - min)</i> rounded to
+	 * hundredths.
+	 *
+	 * <p>
+	 * Whichever end of the stored range is further from 0 is carried, giving
+	 * +10 or -10. That keeps the score within &plusmn;10, the only scores the
+	 * website is known to give, while moving it by at least 10, so rounding to
+	 * hundredths doesn't throw off the range measured.
+	 */
+	private void measure() throws IOException {
+		ScoreFloat base = prober.score6(AnswerVector.ZERO, new ScoreInt(0, 0));
+		int[] carry = new int[2];
+		for (int axis = 0; axis < 2; ++axis)
+			carry[axis] = stored.max(axis) >= -stored.min(axis) ?
+					stored.max(axis) : stored.min(axis);
+		ScoreFloat carried =
+				prober.score6(AnswerVector.ZERO, new ScoreInt(carry[0], carry[1]));
+		probes += 2;
+		
+		float[][] scores = {
+				{base.economic, carried.economic},
+				{base.social, carried.social}
+		};
+		for (int axis = 0; axis < 2; ++axis) {
+			if (scores[axis][1] == scores[axis][0])
+				throw new IllegalStateException(String.format(
+						"Carrying %d over to page 6 doesn't change the %s score; " +
+						"the website doesn't score like the stored chart at all.",
+						carry[axis], axis == QuestionInt.ECONOMIC ? "economic" : "social"));
+			double r = 20.0 * carry[axis] / (scores[axis][1] - scores[axis][0]);
+			range[axis] = (int) Math.round(r);
+			sum[axis] = (int) Math.round(-scores[axis][0] * r / 10);
+		}
+		
+		// The base score is reused by the fingerprint of page 6.
+		sent.put(ProbeKey.of(6, AnswerVector.ZERO, null), raw(base));
+	}
+	
+	/**
+	 * Raw page 6 score from a normalized one.
+	 */
+	private double[] raw(ScoreFloat score) {
+		return new double[] {
+				(score.economic * range[0] / 10.0 + sum[0]) / 2,
+				(score.social * range[1] / 10.0 + sum[1]) / 2
+		};
+	}
+	
+	/**
+	 * Raw score of a page with nothing carried over to it.
+	 */
+	private double[] probe(int page, AnswerVector response) throws IOException {
+		ProbeKey key = ProbeKey.of(page, response, null);
+		double[] score = sent.get(key);
+		if (score == null) {
+			if (page < QUESTIONS.length) {
+				ScoreInt s = prober.score1Through5(page, response, null);
+				score = new double[] {s.economic, s.social};
+			} else {
+				score = raw(prober.score6(response, null));
+			}
+			sent.put(key, score);
+			++probes;
+		}
+		return score;
+	}
+	
+	/**
+	 * Whether answering the given questions with the given answer scores
+	 * differently than the chart so far predicts.
+	 */
+	private boolean off(int page, List<Integer> questions, int answer, int[][] rows)
+			throws IOException {
+		AnswerVector response = AnswerVector.ZERO;
+		double[] predicted = new double[2];
+		for (int ordinal : questions) {
+			response = response.with(ordinal, answer);
+			predicted[rows[ordinal][0]] += rows[ordinal][answer];
+		}
+		
+		double[] base = probe(page, AnswerVector.ZERO);
+		double[] score = probe(page, response);
+		for (int axis = 0; axis < 2; ++axis)
+			if (Math.abs(score[axis] - base[axis] - predicted[axis]) >= 0.5)
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Adds the questions that make a set of questions that's off, off.
+	 */
+	private void bisect(int page, List<Integer> questions, int answer,
+			int[][] rows, List<Integer> changed) throws IOException {
+		if (questions.size() == 1) {
+			if (!changed.contains(questions.get(0)))
+				changed.add(questions.get(0));
+			return;
+		}
+		
+		int half = questions.size() / 2;
+		List<Integer> left = questions.subList(0, half);
+		List<Integer> right = questions.subList(half, questions.size());
+		if (off(page, left, answer, rows))
+			bisect(page, left, answer, rows, changed);
+		if (off(page, right, answer, rows))
+			bisect(page, right, answer, rows, changed);
+	}
+	
+	/**
+	 * Measures the axis and increments of a question again.
+	 */
+	private void reprobe(int page, int ordinal, int[] row) throws IOException {
+		double[] base = probe(page, AnswerVector.ZERO);
+		int axis = -1;
+		for (int answer = 1; answer < 4; ++answer) {
+			double[] score = probe(page, AnswerVector.ZERO.with(ordinal, answer));
+			double e = score[0] - base[0], s = score[1] - base[1];
+			if (Math.abs(e) >= 0.5) {
+				axis = QuestionInt.ECONOMIC;
+				row[answer] = (int) Math.round(e);
+			} else {
+				if (Math.abs(s) >= 0.5)
+					axis = QuestionInt.SOCIAL;
+				row[answer] = (int) Math.round(s);
+			}
+		}
+		// A question that no longer moves either score keeps its axis.
+		if (axis >= 0)
+			row[0] = axis;
+	}
+}
@@ -0,0 +1,146 @@
+package com.github.pcre;
+
+import java.util.Arrays;
+
+import com.github.pcre.PCReversal.QuestionInt;
+import com.github.pcre.PCReversal.ScoreInt;
+
+/**
+ * Scores responses held column-wise, i.e. one {@code byte[]} per question
+ * ordinal with one answer (0-3) per respondent: {@code columns[ordinal][i]}.
+ *
+ * <p>
+ * Scoring goes question by question over whole blocks of respondents, adding
+ * the increments of one question to the sums of a block of respondents at a
+ * time. That way the inner loop is a plain array walk with no per-respondent
+ * branch on the axis, and the sums of a block stay in cache while going
+ * through all questions. {@link #check(byte[][], int)} compares the results
+ * against {@link Scorer} one respondent at a time.
+ */
+class ColumnScorer {
+	/**
+	 * Respondents scored at a time, so that the sums stay in cache while going
+	 * through all questions.
+	 */
+	private static final int BLOCK = 4096;
+	
+	private final Scorer scorer;
+	
+	/**
+	 * Increments by question ordinal and answer, or {@code null} for questions
+	 * that don't change the score.
+	 */
+	private final int[][] increments = new int[Questions.COUNT][];
+	
+	public ColumnScorer(Scorer scorer) {
+		this.scorer = scorer;
+		
+		for (int ordinal = 0; ordinal < increments.length; ++ordinal) {
+			int[] increments = new int[4];
+			for (int answer = 1; answer < 4; ++answer)
+				increments[answer] = scorer.increment(ordinal, answer);
+			if (increments[1] != 0 || increments[2] != 0 || increments[3] != 0)
+				this.increments[ordinal] = increments;
+		}
+	}
+	
+	private static void checkColumns(byte[][] columns, int length) {
+		if (columns.length != Questions.COUNT)
+			throw new IllegalArgumentException(String.format(
+					"There are %d columns but %d questions.",
+					columns.length, Questions.COUNT));
+		for (int ordinal = 0; ordinal < columns.length; ++ordinal)
+			if (columns[ordinal].length < length)
+				throw new IllegalArgumentException(String.format(
+						"Column %d has %d answers but %d are needed.",
+						ordinal, columns[ordinal].length, length));
+	}
+	
+	/**
+	 * Adds the raw scores of respondents {@code [from, to)} to
+	 * {@code economic[i - from]} and {@code social[i - from]}.
+	 */
+	public void raw(byte[][] columns, int from, int to, int[] economic, int[] social) {
+		checkColumns(columns, to);
+		
+		for (int block = from; block < to; block += BLOCK) {
+			int end = Math.min(block + BLOCK, to);
+			for (int ordinal = 0; ordinal < columns.length; ++ordinal) {
+				int[] increments = this.increments[ordinal];
+				if (increments == null)
+					continue;
+				
+				byte[] column = columns[ordinal];
+				int[] sum = scorer.axis(ordinal) == QuestionInt.ECONOMIC ?
+						economic : social;
+				for (int i = block, j = block - from; i < end; ++i, ++j)
+					sum[j] += increments[column[i] & 3];
+			}
+		}
+	}
+	
+	/**
+	 * Scores the first {@code economic.length} respondents.
+	 */
+	public void score(byte[][] columns, float[] economic, float[] social) {
+		int length = economic.length;
+		if (social.length != length)
+			throw new IllegalArgumentException(String.format(
+					"Economic (%d) and social (%d) scores need to be of the " +
+					"same length.",
+					length, social.length));
+		
+		int[] economicRaw = new int[Math.min(BLOCK, length)];
+		int[] socialRaw = new int[economicRaw.length];
+		for (int from = 0; from < length; from += BLOCK) {
+			int to = Math.min(from + BLOCK, length);
+			Arrays.fill(economicRaw, 0);
+			Arrays.fill(socialRaw, 0);
+			raw(columns, from, to, economicRaw, socialRaw);
+			for (int i = from; i < to; ++i) {
+				economic[i] = scorer.economic(economicRaw[i - from]);
+				social[i] = scorer.social(socialRaw[i - from]);
+			}
+		}
+	}
+	
+	/**
+	 * Scores the first {@code length} respondents both column-wise and one at
+	 * a time with {@link Scorer#raw(AnswerVector)}, and throws if they differ.
+	 * Also catches answers outside [0, 3], which the column-wise loop only
+	 * masks.
+	 */
+	public void check(byte[][] columns, int length) {
+		checkColumns(columns, length);
+		
+		int[] economic = new int[Math.min(BLOCK, length)];
+		int[] social = new int[economic.length];
+		for (int from = 0; from < length; from += BLOCK) {
+			int to = Math.min(from + BLOCK, length);
+			Arrays.fill(economic, 0);
+			Arrays.fill(social, 0);
+			raw(columns, from, to, economic, social);
+			
+			int[] answers = new int[columns.length];
+			for (int i = from; i < to; ++i) {
+				for (int ordinal = 0; ordinal < columns.length; ++ordinal) {
+					int answer = columns[ordinal][i];
+					if (answer < 0 || answer > 3)
+						throw new IllegalStateException(String.format(
+								"Answer of respondent %d to question #%d (%d) " +
+								"needs to be in [0, 3].",
+								i, ordinal, answer));
+					answers[ordinal] = answer;
+				}
+				
+				ScoreInt expected = scorer.raw(AnswerVector.of(answers));
+				if (expected.economic != economic[i - from] ||
+						expected.social != social[i - from])
+					throw new IllegalStateException(String.format(
+							"Respondent %d scored E=%d, S=%d column-wise but %s " +
+							"on its own.",
+							i, economic[i - from], social[i - from], expected));
+			}
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package com.github.pcre;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads respondents one row at a time from a CSV file whose header row names
+ * the questions as in {@link PCReversal#QUESTIONS}.
+ *
+ * <p>
+ * Columns are matched to questions once, when the header is read. Rows are
+ * then parsed straight from a reusable byte buffer into the halves of an
+ * {@link AnswerVector}, so reading a row allocates nothing and memory use
+ * doesn't depend on the size of the file. Columns that aren't questions are
+ * skipped (and may be quoted), and questions without a column or with an
+ * empty field are taken to be answered with "Strongly Disagree" (0).
+ */
+class CsvRespondents {
+	private final InputStream input;
+	
+	private byte[] buffer = new byte[1 << 16];
+	
+	/**
+	 * Buffered bytes are {@code [position, limit)}; the current row is
+	 * {@code [start, end)}, without the line break.
+	 */
+	private int position, limit, start, end;
+	
+	private final String[] header;
+	
+	/**
+	 * Question ordinal by column, or -1 for columns that aren't questions.
+	 */
+	private final int[] ordinals;
+	
+	/**
+	 * Answers of the current respondent by ordinal, while it's being read.
+	 */
+	private final int[] answers = new int[Questions.COUNT];
+	
+	private long low, high;
+	
+	private long row;
+	
+	public CsvRespondents(InputStream input) throws IOException {
+		this.input = input;
+		
+		if (!nextRow())
+			throw new IllegalArgumentException("CSV has no header.");
+		
+		List<String> header = new ArrayList<>();
+		int from = start;
+		for (int i = start; i <= end; ++i) {
+			if (i == end || buffer[i] == ',') {
+				header.add(unquote(from, i));
+				from = i + 1;
+			} else if (buffer[i] == '"') {
+				i = closingQuote(i);
+			}
+		}
+		this.header = header.toArray(new String[header.size()]);
+		
+		ordinals = new int[this.header.length];
+		for (int column = 0; column < ordinals.length; ++column)
+			ordinals[column] = Questions.ordinal(this.header[column]);
+	}
+	
+	private String unquote(int from, int to) {
+		String field = new String(buffer, from, to - from, StandardCharsets.UTF_8).trim();
+		if (field.length() > 1 && field.startsWith("\"") && field.endsWith("\""))
+			field = field.substring(1, field.length() - 1).replace("\"\"", "\"");
+		return field;
+	}
+	
+	private int closingQuote(int i) {
+		for (++i; i < end; ++i) {
+			if (buffer[i] == '"') {
+				if (i + 1 < end && buffer[i + 1] == '"')
+					++i;
+				else
+					return i;
+			}
+		}
+		return end - 1;
+	}
+	
+	/**
+	 * Finds the next row and makes sure all of it is in the buffer.
+	 */
+	private boolean nextRow() throws IOException {
+		boolean quoted = false;
+		int i = position;
+		while (true) {
+			for (; i < limit; ++i) {
+				byte b = buffer[i];
+				if (b == '"') {
+					quoted = !quoted;
+				} else if (b == '\n' && !quoted) {
+					start = position;
+					end = i > start && buffer[i - 1] == '\r' ? i - 1 : i;
+					position = i + 1;
+					return true;
+				}
+			}
+			
+			int offset = i - position;
+			if (!fill()) {
+				if (position == limit)
+					return false;
+				start = position;
+				end = limit;
+				position = limit;
+				return true;
+			}
+			i = position + offset;
+		}
+	}
+	
+	/**
+	 * Moves the unread bytes to the front of the buffer, growing it if the
+	 * buffer is full of them, and reads more.
+	 */
+	private boolean fill() throws IOException {
+		if (position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+		} else if (limit == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		
+		int read = input.read(buffer, limit, buffer.length - limit);
+		if (read < 0)
+			return false;
+		limit += read;
+		return true;
+	}
+	
+	/**
+	 * Reads the next respondent; blank rows are skipped.
+	 *
+	 * @return whether there was one
+	 */
+	public boolean next() throws IOException {
+		do {
+			if (!nextRow())
+				return false;
+			++row;
+		} while (start == end);
+		
+		Arrays.fill(answers, 0);
+		int column = 0;
+		int answer = -1;
+		boolean invalid = false;
+		for (int i = start; i <= end; ++i) {
+			int b = i == end ? ',' : buffer[i];
+			if (b == ',') {
+				if (column < ordinals.length && ordinals[column] >= 0) {
+					if (invalid || answer > 3)
+						throw new IllegalArgumentException(String.format(
+								"Row %d has an answer to %s that isn't in [0, 3].",
+								row, header[column]));
+					if (answer > 0)
+						answers[ordinals[column]] = answer;
+				}
+				++column;
+				answer = -1;
+				invalid = false;
+			} else if (column >= ordinals.length || ordinals[column] < 0) {
+				if (b == '"')
+					i = closingQuote(i);
+			} else if (b >= '0' && b <= '9') {
+				answer = answer < 0 ? b - '0' : Math.min(answer * 10 + b - '0', 4);
+			} else if (b != ' ' && b != '\t') {
+				invalid = true;
+			}
+		}
+		
+		AnswerVector response = AnswerVector.of(answers);
+		low = response.low;
+		high = response.high;
+		return true;
+	}
+	
+	public String[] header() {
+		return header.clone();
+	}
+	
+	/**
+	 * Number of the current row, not counting the header.
+	 */
+	public long row() {
+		return row;
+	}
+	
+	public long low() {
+		return low;
+	}
+	
+	public long high() {
+		return high;
+	}
+	
+	/**
+	 * Buffer holding the current row as read, between {@link #start()} and
+	 * {@link #end()}. Only valid until the next call to {@link #next()}.
+	 */
+	byte[] buffer() {
+		return buffer;
+	}
+	
+	int start() {
+		return start;
+	}
+	
+	int end() {
+		return end;
+	}
+}
@@ -0,0 +1,111 @@
+package com.github.pcre;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Scores a CSV file of respondents (see {@link CsvRespondents}) as it streams
+ * by, copying each row to the output with {@code economic} and
+ * {@code social} columns added.
+ *
+ * <p>
+ * Nothing is kept from one row to the next and nothing is allocated per row,
+ * so files of any size are scored in a fixed amount of memory.
+ */
+class CsvScorer {
+	private static final byte[] HEADER = ",economic,social"
+			.getBytes(StandardCharsets.US_ASCII);
+	
+	private final TableScorer scorer;
+	
+	/**
+	 * Output waiting to be written.
+	 */
+	private final byte[] output = new byte[1 << 16];
+	
+	private int length;
+	
+	public CsvScorer(Scorer scorer) {
+		this.scorer = new TableScorer(scorer);
+	}
+	
+	/**
+	 * Doesn't close either stream.
+	 *
+	 * @return number of respondents scored
+	 */
+	public synchronized long score(InputStream input, OutputStream out)
+			throws IOException {
+		Scorer normalizer = scorer.scorer();
+		CsvRespondents respondents = new CsvRespondents(input);
+		length = 0;
+		
+		write(out, respondents.buffer(), respondents.start(), respondents.end());
+		write(out, HEADER, 0, HEADER.length);
+		write(out, '\n');
+		
+		long count = 0;
+		while (respondents.next()) {
+			long packed = scorer.packed(respondents.low(), respondents.high());
+			write(out, respondents.buffer(), respondents.start(), respondents.end());
+			write(out, ',');
+			write(out, normalizer.economic(TableScorer.economic(packed)));
+			write(out, ',');
+			write(out, normalizer.social(TableScorer.social(packed)));
+			write(out, '\n');
+			++count;
+		}
+		
+		out.write(output, 0, length);
+		out.flush();
+		return count;
+	}
+	
+	private void write(OutputStream out, byte[] bytes, int from, int to)
+			throws IOException {
+		if (to - from > output.length - length) {
+			out.write(output, 0, length);
+			length = 0;
+			if (to - from > output.length) {
+				out.write(bytes, from, to - from);
+				return;
+			}
+		}
+		System.arraycopy(bytes, from, output, length, to - from);
+		length += to - from;
+	}
+	
+	private void write(OutputStream out, char c) throws IOException {
+		if (length == output.length) {
+			out.write(output, 0, length);
+			length = 0;
+		}
+		output[length++] = (byte) c;
+	}
+	
+	/**
+	 * Writes a score with two decimals, like {@code %.2f} would.
+	 */
+	private void write(OutputStream out, float score) throws IOException {
+		if (output.length - length < 16) {
+			out.write(output, 0, length);
+			length = 0;
+		}
+		
+		int hundredths = Math.round(score * 100);
+		if (hundredths < 0) {
+			output[length++] = '-';
+			hundredths = -hundredths;
+		}
+		
+		int whole = hundredths / 100;
+		if (whole >= 10)
+			output[length++] = (byte) ('0' + whole / 10);
+		output[length++] = (byte) ('0' + whole % 10);
+		output[length++] = '.';
+		output[length++] = (byte) ('0' + hundredths / 10 % 10);
+		output[length++] = (byte) ('0' + hundredths % 10);
+	}
+}
@@ -0,0 +1,205 @@
+package com.github.pcre;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+
+import com.github.pcre.PCReversal.QuestionInt;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Stands in for the test on the website, scoring pages from a chart, so that
+ * charts can be reconstructed and probing can be load tested without a
+ * network.
+ *
+ * <p>
+ * Pages 1-5 answer with the raw scores carried over to the next page in the
+ * same hidden {@code carried_ec} and {@code carried_soc} fields as the
+ * website, and page 6 answers with the normalized scores in an
+ * {@code ec=...&soc=...} link, so {@link PCReversal} can't tell the
+ * difference. Questions left out of a page count as "Strongly Disagree".
+ * Malformed pages are rejected with a {@link HttpStatusException} for 400,
+ * like a web server would.
+ *
+ * <p>
+ * It can be used in-process, by setting {@link PCReversal#transport} to it,
+ * or served over HTTP with {@link #serve(InetSocketAddress)} and reached
+ * through an {@link HttpTransport}.
+ */
+class Emulator implements Transport {
+	private static final String PAGE =
+			"<html><body><form method='post' action='/test'>\n" +
+			"<input name='page' type='hidden' value='%d'>\n" +
+			"<input name='carried_ec' type='hidden' value='%d'>\n" +
+			"<input name='carried_soc' type='hidden' value='%d'>\n" +
+			"</form></body></html>\n";
+	
+	private static final String RESULT =
+			"<html><body>\n" +
+			"<a href='/analysis2?ec=%.2f&soc=%.2f'>Your political compass</a>\n" +
+			"</body></html>\n";
+	
+	private final Chart chart;
+	
+	public Emulator(Chart chart) {
+		this.chart = chart;
+	}
+	
+	@Override
+	public InputStream post(byte[] body, int offset, int length)
+			throws IOException {
+		return new ByteArrayInputStream(respond(
+				new String(body, offset, length, StandardCharsets.US_ASCII))
+				.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * @param form URL-encoded form of a page
+	 * @return page the website would send back
+	 */
+	String respond(String form) throws IOException {
+		int page = 0, economic = 0, social = 0;
+		int[] answers = new int[Questions.COUNT];
+		for (String field : form.split("&")) {
+			if (field.isEmpty())
+				continue;
+			
+			int equals = field.indexOf('=');
+			if (equals < 0)
+				throw new HttpStatusException(400, String.format(
+						"Form field %s has no value.", field));
+			String name = decode(field.substring(0, equals));
+			int value;
+			try {
+				value = Integer.parseInt(decode(field.substring(equals + 1)));
+			} catch (NumberFormatException x) {
+				throw new HttpStatusException(400, String.format(
+						"Form field %s isn't an integer.", field), x);
+			}
+			
+			if (name.equals("page")) {
+				page = value;
+			} else if (name.equals("carried_ec")) {
+				economic = value;
+			} else if (name.equals("carried_soc")) {
+				social = value;
+			} else {
+				int ordinal = Questions.ordinal(name);
+				if (ordinal < 0)
+					throw new HttpStatusException(400, String.format(
+							"Form field %s isn't a question.", name));
+				if (value < 0 || value > 3)
+					throw new HttpStatusException(400, String.format(
+							"Answer (%d) to %s needs to be in [0, 3].",
+							value, name));
+				answers[ordinal] = value;
+			}
+		}
+		if (page < 1 || page > PCReversal.QUESTIONS.length)
+			throw new HttpStatusException(400, String.format(
+					"Page (%d) needs to be in [1, %d].",
+					page, PCReversal.QUESTIONS.length));
+		
+		// Only the questions on the submitted page count, like on the website.
+		int to = Questions.OFFSETS[page];
+		for (int ordinal = Questions.OFFSETS[page - 1]; ordinal < to; ++ordinal) {
+			if (chart.axis(ordinal) == QuestionInt.ECONOMIC)
+				economic += chart.increment(ordinal, answers[ordinal]);
+			else
+				social += chart.increment(ordinal, answers[ordinal]);
+		}
+		
+		if (page < PCReversal.QUESTIONS.length)
+			return String.format(Locale.ROOT, PAGE, page + 1, economic, social);
+		// The carry can take scores out of the range of the chart.
+		return String.format(Locale.ROOT, RESULT,
+				Scorer.normalize(economic,
+						chart.min(QuestionInt.ECONOMIC), chart.max(QuestionInt.ECONOMIC)),
+				Scorer.normalize(social,
+						chart.min(QuestionInt.SOCIAL), chart.max(QuestionInt.SOCIAL)));
+	}
+	
+	private static String decode(String s) throws IOException {
+		try {
+			return URLDecoder.decode(s, "UTF-8");
+		} catch (UnsupportedEncodingException | IllegalArgumentException x) {
+			throw new HttpStatusException(400, String.format(
+					"%s isn't URL-encoded.", s), x);
+		}
+	}
+	
+	/**
+	 * Serves the test at {@code /test} on the given address until the server is
+	 * stopped. Malformed pages are answered with 400.
+	 */
+	public HttpServer serve(InetSocketAddress address) throws IOException {
+		HttpServer server = HttpServer.create(address, 0);
+		server.createContext("/test", exchange -> {
+			try {
+				if (!exchange.getRequestMethod().equals("POST")) {
+					exchange.sendResponseHeaders(405, -1);
+					return;
+				}
+				
+				ByteArrayOutputStream form = new ByteArrayOutputStream();
+				try (InputStream input = exchange.getRequestBody()) {
+					byte[] buffer = new byte[4096];
+					int read;
+					while ((read = input.read(buffer)) >= 0)
+						form.write(buffer, 0, read);
+				}
+				
+				int status = 200;
+				String response;
+				try {
+					response = respond(form.toString("US-ASCII"));
+				} catch (HttpStatusException x) {
+					status = x.status();
+					response = x.getMessage() + "\n";
+				}
+				
+				byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set(
+						"Content-Type",
+						status == 200 ? "text/html; charset=UTF-8" :
+								"text/plain; charset=UTF-8");
+				exchange.sendResponseHeaders(status, bytes.length);
+				try (OutputStream output = exchange.getResponseBody()) {
+					output.write(bytes);
+				}
+			} finally {
+				exchange.close();
+			}
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		return server;
+	}
+	
+	/**
+	 * Serves the chart in the file given as the first argument (see
+	 * {@link Chart#open(java.nio.file.Path)}) on the port given as the
+	 * second, 8080 by default.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: Emulator <chart> [port]");
+			System.exit(1);
+		}
+		
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+		new Emulator(Chart.open(Paths.get(args[0])))
+				.serve(new InetSocketAddress(port));
+		System.out.println(String.format(
+				"Serving %s at http://localhost:%d/test", args[0], port));
+	}
+}
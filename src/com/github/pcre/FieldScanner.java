@@ -0,0 +1,186 @@
+package com.github.pcre;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads numbers out of a response as it streams in, each one right after the
+ * first occurrence of its prefix, and stops reading as soon as it has all of
+ * them.
+ *
+ * <p>
+ * Bytes go through once, through a small buffer, and are matched against all
+ * the prefixes at the same time, so the page is never kept in memory or
+ * decoded into characters. A prefix not followed by a number (an optional
+ * minus sign, digits and, for decimal fields, a point and more digits) is
+ * skipped over, like a regular expression for the prefix and the number
+ * would. Prefixes are matched with
+ * <a href="https://en.wikipedia.org/wiki/Knuth%E2%80%93Morris%E2%80%93Pratt_algorithm">KMP</a>
+ * failure tables so no byte is looked at twice.
+ *
+ * <p>
+ * Instances hold no state from one scan to the next and can be shared between
+ * threads.
+ */
+class FieldScanner {
+	private static final int BUFFER_SIZE = 4096;
+	
+	/**
+	 * Longest number read; no score comes close.
+	 */
+	private static final int MAX_DIGITS = 32;
+	
+	private final byte[][] prefixes;
+	
+	/**
+	 * Length of the longest proper prefix of {@code prefixes[f][0..i]} that's
+	 * also a suffix of it, by field and position.
+	 */
+	private final int[][] failures;
+	
+	private final boolean decimal;
+	
+	/**
+	 * @param decimal whether numbers have a fractional part
+	 */
+	public FieldScanner(boolean decimal, String... prefixes) {
+		this.decimal = decimal;
+		this.prefixes = new byte[prefixes.length][];
+		this.failures = new int[prefixes.length][];
+		for (int f = 0; f < prefixes.length; ++f) {
+			byte[] prefix = prefixes[f].getBytes(StandardCharsets.US_ASCII);
+			if (prefix.length == 0)
+				throw new IllegalArgumentException("Prefixes can't be empty.");
+			
+			int[] failure = new int[prefix.length];
+			for (int i = 1, k = 0; i < prefix.length; ++i) {
+				while (k > 0 && prefix[i] != prefix[k])
+					k = failure[k - 1];
+				if (prefix[i] == prefix[k])
+					++k;
+				failure[i] = k;
+			}
+			this.prefixes[f] = prefix;
+			this.failures[f] = failure;
+		}
+	}
+	
+	/**
+	 * Reads until every field has been found, and no further. Doesn't close the
+	 * stream.
+	 *
+	 * @param values where the number of each field goes, in the order of the
+	 * prefixes
+	 * @throws IOException if the stream ends before every field is found
+	 */
+	public void scan(InputStream input, double[] values) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int[] matched = new int[prefixes.length];
+		boolean[] found = new boolean[prefixes.length];
+		int remaining = prefixes.length;
+		
+		// Number being read, if any, for the field whose prefix was just matched.
+		char[] number = new char[MAX_DIGITS];
+		int field = -1, length = 0;
+		
+		int read;
+		while ((read = input.read(buffer)) >= 0) {
+			for (int i = 0; i < read; ++i) {
+				byte b = buffer[i];
+				if (field >= 0) {
+					if (accepts(number, length, b)) {
+						number[length++] = (char) b;
+					} else {
+						if (complete(number, length)) {
+							values[field] = parse(number, length);
+							found[field] = true;
+							if (--remaining == 0)
+								return;
+						}
+						field = -1;
+					}
+				}
+				
+				for (int f = 0; f < prefixes.length; ++f) {
+					if (found[f])
+						continue;
+					
+					byte[] prefix = prefixes[f];
+					int k = matched[f];
+					while (k > 0 && b != prefix[k])
+						k = failures[f][k - 1];
+					if (b == prefix[k])
+						++k;
+					if (k == prefix.length) {
+						k = failures[f][k - 1];
+						if (field < 0) {
+							field = f;
+							length = 0;
+						}
+					}
+					matched[f] = k;
+				}
+			}
+		}
+		
+		if (field >= 0 && complete(number, length)) {
+			values[field] = parse(number, length);
+			found[field] = true;
+			--remaining;
+		}
+		if (remaining > 0) {
+			StringBuilder missing = new StringBuilder();
+			for (int f = 0; f < prefixes.length; ++f)
+				if (!found[f])
+					missing.append(missing.length() == 0 ? "" : ", ").append(
+							new String(prefixes[f], StandardCharsets.US_ASCII));
+			throw new IOException(String.format(
+					"The response ended without a number after %s.", missing));
+		}
+	}
+	
+	/**
+	 * Decimals are parsed straight to float, the precision of scores, so they
+	 * aren't rounded twice.
+	 */
+	private double parse(char[] number, int length) {
+		String s = new String(number, 0, length);
+		return decimal ? Float.parseFloat(s) : Double.parseDouble(s);
+	}
+	
+	/**
+	 * Whether the byte can extend the number read so far.
+	 */
+	private boolean accepts(char[] number, int length, byte b) {
+		if (length == MAX_DIGITS)
+			return false;
+		if (b >= '0' && b <= '9')
+			return true;
+		if (b == '-')
+			return length == 0;
+		if (b == '.') {
+			if (!decimal || length == 0 || number[length - 1] == '-')
+				return false;
+			for (int i = 0; i < length; ++i)
+				if (number[i] == '.')
+					return false;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Whether the number read so far is a whole one.
+	 */
+	private boolean complete(char[] number, int length) {
+		if (length == 0 || number[length - 1] < '0' || number[length - 1] > '9')
+			return false;
+		if (!decimal)
+			return true;
+		for (int i = 0; i < length; ++i)
+			if (number[i] == '.')
+				return true;
+		return false;
+	}
+}
@@ -0,0 +1,123 @@
+package com.github.pcre;
+
+import static com.github.pcre.PCReversal.QUESTIONS;
+import static com.github.pcre.Questions.OFFSETS;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import com.github.pcre.PCReversal.ScoreInt;
+
+/**
+ * Writes the form for a page of the test straight into bytes.
+ *
+ * <p>
+ * Field names never change, so each one is URL-encoded once, up front, into
+ * an ASCII template ending in {@code =}, and a page is encoded by copying
+ * templates and writing digits into a buffer that each thread reuses from
+ * probe to probe. Nothing is allocated per probe, and the length of the body
+ * is its length in bytes.
+ */
+final class FormEncoder {
+	/**
+	 * {@code &name=} by question ordinal.
+	 */
+	private static final byte[][] NAMES = new byte[Questions.COUNT][];
+	
+	private static final byte[] PAGE = ascii("page=");
+	
+	private static final byte[] CARRIED_EC = ascii("&carried_ec=");
+	
+	private static final byte[] CARRIED_SOC = ascii("&carried_soc=");
+	
+	/**
+	 * Longest form of any page, with the longest possible numbers.
+	 */
+	static final int CAPACITY;
+	
+	static {
+		int capacity = 0;
+		for (int page = 0; page < QUESTIONS.length; ++page) {
+			int length = PAGE.length + 1 +
+					CARRIED_EC.length + 11 + CARRIED_SOC.length + 11;
+			for (int q = 0; q < QUESTIONS[page].length; ++q) {
+				try {
+					NAMES[OFFSETS[page] + q] = ascii(
+							"&" + URLEncoder.encode(QUESTIONS[page][q], "UTF-8") + "=");
+				} catch (UnsupportedEncodingException x) {
+					throw new AssertionError(x);
+				}
+				length += NAMES[OFFSETS[page] + q].length + 1;
+			}
+			capacity = Math.max(capacity, length);
+		}
+		CAPACITY = capacity;
+	}
+	
+	private static final ThreadLocal<byte[]> BUFFER =
+			ThreadLocal.withInitial(() -> new byte[CAPACITY]);
+	
+	private FormEncoder() {
+	}
+	
+	private static byte[] ascii(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+	
+	/**
+	 * The calling thread's buffer, {@link #CAPACITY} bytes long.
+	 */
+	static byte[] buffer() {
+		return BUFFER.get();
+	}
+	
+	/**
+	 * Encodes the answers to the questions on a page, and the score carried
+	 * over to it, at the start of the buffer.
+	 *
+	 * @param carry {@code null} for none
+	 * @return length of the form in bytes
+	 */
+	static int encode(byte[] buffer, int page, AnswerVector response,
+			ScoreInt carry) {
+		int length = copy(PAGE, buffer, 0);
+		length = write(page, buffer, length);
+		length = copy(CARRIED_EC, buffer, length);
+		length = write(carry == null ? 0 : carry.economic, buffer, length);
+		length = copy(CARRIED_SOC, buffer, length);
+		length = write(carry == null ? 0 : carry.social, buffer, length);
+		
+		int from = OFFSETS[page - 1], to = OFFSETS[page];
+		for (int ordinal = from; ordinal < to; ++ordinal) {
+			length = copy(NAMES[ordinal], buffer, length);
+			buffer[length++] = (byte) ('0' + response.get(ordinal));
+		}
+		return length;
+	}
+	
+	private static int copy(byte[] template, byte[] buffer, int offset) {
+		System.arraycopy(template, 0, buffer, offset, template.length);
+		return offset + template.length;
+	}
+	
+	/**
+	 * Writes an integer in decimal.
+	 */
+	private static int write(int value, byte[] buffer, int offset) {
+		long v = value;
+		if (v < 0) {
+			buffer[offset++] = '-';
+			v = -v;
+		}
+		
+		int digits = 1;
+		for (long p = 10; p <= v; p *= 10)
+			++digits;
+		for (int i = offset + digits - 1; i >= offset; --i) {
+			buffer[i] = (byte) ('0' + v % 10);
+			v /= 10;
+		}
+		return offset + digits;
+	}
+}
@@ -0,0 +1,54 @@
+package com.github.pcre;
+
+import java.io.IOException;
+
+/**
+ * The server answered a probe with a status other than 2xx.
+ */
+class HttpStatusException extends IOException {
+	private static final long serialVersionUID = 1L;
+	
+	private final int status;
+	
+	private final long retryAfter;
+	
+	public HttpStatusException(int status, String message) {
+		this(status, message, -1);
+	}
+	
+	public HttpStatusException(int status, String message, Throwable cause) {
+		this(status, message, -1);
+		initCause(cause);
+	}
+	
+	/**
+	 * @param retryAfter milliseconds the server asked to wait before trying
+	 * again, or -1 if it didn't say
+	 */
+	public HttpStatusException(int status, String message, long retryAfter) {
+		super(message);
+		this.status = status;
+		this.retryAfter = retryAfter;
+	}
+	
+	public int status() {
+		return status;
+	}
+	
+	/**
+	 * Milliseconds to wait before trying again, from the {@code Retry-After}
+	 * header, or -1.
+	 */
+	public long retryAfter() {
+		return retryAfter;
+	}
+	
+	/**
+	 * Whether the same request might succeed later: the server is throttling,
+	 * overloaded or timed out, as opposed to rejecting the request.
+	 */
+	public boolean isTransient() {
+		return status == 408 || status == 429 || status == 500 ||
+				status == 502 || status == 503 || status == 504;
+	}
+}
@@ -0,0 +1,125 @@
+package com.github.pcre;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * {@link Transport} to the website over persistent connections.
+ *
+ * <p>
+ * The URL is parsed once, and connections are left to the JDK's keep-alive
+ * cache, which reuses an idle connection to the same host instead of opening
+ * a new one, TLS handshake and all. For a connection to go back to the cache
+ * its response needs to be read to the end and its stream closed, without
+ * calling {@link HttpURLConnection#disconnect()}; the stream returned by
+ * {@link #post(byte[], int, int)} drains whatever the caller didn't read when
+ * it's closed. Requests are sent with a fixed length so the body isn't
+ * buffered a second time. Statuses other than 2xx are thrown as
+ * {@link HttpStatusException}s.
+ *
+ * <p>
+ * How many idle connections are kept per host is set by the
+ * {@code http.maxConnections} system property, 5 by default. It's read once,
+ * when the first connection is made, so it's raised here to
+ * {@link ChartReconstructor#DEFAULT_IN_FLIGHT} if it hasn't been set yet.
+ */
+class HttpTransport implements Transport {
+	public static final String DEFAULT_URL = "https://www.politicalcompass.org/test";
+	
+	private static final int CONNECT_TIMEOUT = 10000;
+	
+	private static final int READ_TIMEOUT = 30000;
+	
+	static {
+		if (System.getProperty("http.maxConnections") == null)
+			System.setProperty(
+					"http.maxConnections",
+					String.valueOf(ChartReconstructor.DEFAULT_IN_FLIGHT));
+	}
+	
+	private final URL url;
+	
+	public HttpTransport() {
+		this(DEFAULT_URL);
+	}
+	
+	public HttpTransport(String url) {
+		try {
+			this.url = new URL(url);
+		} catch (MalformedURLException x) {
+			throw new IllegalArgumentException(String.format(
+					"%s isn't a valid URL.", url), x);
+		}
+	}
+	
+	@Override
+	public InputStream post(byte[] body, int offset, int length)
+			throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setConnectTimeout(CONNECT_TIMEOUT);
+		connection.setReadTimeout(READ_TIMEOUT);
+		connection.setFixedLengthStreamingMode(length);
+		connection.setRequestProperty(
+				"Content-Type",
+				"application/x-www-form-urlencoded; charset=UTF-8");
+		try (OutputStream output = connection.getOutputStream()) {
+			output.write(body, offset, length);
+		}
+		
+		int status = connection.getResponseCode();
+		if (status / 100 != 2) {
+			// Reading the error body lets this connection be reused too.
+			InputStream error = connection.getErrorStream();
+			if (error != null)
+				new Draining(error).close();
+			throw new HttpStatusException(status, String.format(
+					"%s answered %d %s.",
+					url, status, connection.getResponseMessage()),
+					retryAfter(connection.getHeaderField("Retry-After")));
+		}
+		return new Draining(connection.getInputStream());
+	}
+	
+	/**
+	 * @return milliseconds in a {@code Retry-After} header given in seconds,
+	 * or -1
+	 */
+	private static long retryAfter(String header) {
+		if (header == null)
+			return -1;
+		try {
+			return Math.max(0, Long.parseLong(header.trim())) * 1000;
+		} catch (NumberFormatException x) {
+			// An HTTP date; not worth parsing for how rarely it's sent.
+			return -1;
+		}
+	}
+	
+	/**
+	 * Reads the rest of the response on close, so the connection can be kept
+	 * alive.
+	 */
+	private static class Draining extends FilterInputStream {
+		public Draining(InputStream in) {
+			super(in);
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try {
+				byte[] skip = new byte[4096];
+				while (in.read(skip) >= 0)
+					;
+			} finally {
+				in.close();
+			}
+		}
+	}
+}
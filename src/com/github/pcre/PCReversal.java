@@ -1,20 +1,13 @@
 package com.github.pcre;
 
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.StringJoiner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -76,17 +69,33 @@ import java.util.stream.Collectors;
  * </li>
  * 
  * <p>
- * {@link #page6()} prints to console tab-delimited rows that 
- * look like following:
+ * {@link #page6()} prints to console tab-delimited rows, commented out with
+ * "#", that look like following:
  * 
  * <p>
- * %d %d [ES] 0.00 %.2f %.2f %.2f
+ * # %d %d [ES] 0.00 %.2f %.2f %.2f
  * 
  * <p>
  * These rows are the same as the ones produced by {@link #pages1Through5()} except
- * the score values are given as floats. You'll need to convert these values to
- * integer values by scaling them. There might be a systematic way of doing this,
- * but it's easy enough to do it by inspection.
+ * the score values are given as floats. {@link #main(String[])} converts them
+ * to integers with {@link Rescaler} and prints the integer rows after them, so
+ * what it prints can be read by {@link Scorer#read(java.nio.file.Path)} as is.
+ * 
+ * <p>
+ * Both send up to {@link ChartReconstructor#DEFAULT_IN_FLIGHT} probes at a
+ * time. {@link ChartReconstructor} gives the same rows with fewer probes, by
+ * measuring an economic and a social question in the same probe.
+ * 
+ * <p>
+ * To check whether the website still scores like a stored chart, and only
+ * reprobe the questions that changed, use {@link ChartRefresher}.
+ * 
+ * <p>
+ * Probes go through a {@link CachingProber}, so the same probe is only sent
+ * once. {@link #main(String[])} also journals them to "probes.journal". If it
+ * dies halfway, run it again and it picks up where it left off. The journal is
+ * deleted once the chart has been printed, so the next run probes the website
+ * afresh.
  * 
  * <p>
  * To do the test programmatically, call {@link #run(Map)}.
@@ -94,7 +103,8 @@ import java.util.stream.Collectors;
  * Populate a {@link Map} with question ({@code String}) - answer ({@code int})
  * pairs.
  * 
- * Valid question names are found in {@link #QUESTIONS}.
+ * Valid question names are found in {@link #QUESTIONS}. The same answers can
+ * be packed into an {@link AnswerVector} and passed to {@link #run(AnswerVector)}.
  * 
  * Valid answer values are:
  * <li> Strongly Disagree: 0
@@ -102,10 +112,20 @@ import java.util.stream.Collectors;
  * <li> Agree: 2
  * <li> Strongly Agree: 3
  * 
+ * <p>
+ * To do the test offline, save the rows printed by {@link #main(String[])}
+ * to a file, read it with {@link Scorer#read(java.nio.file.Path)} and call
+ * {@link Scorer#score(Map)} instead of {@link #run(Map)}. The chart for
+ * November 10th, 2016 is in "results/20161110.txt".
+ * 
  * @author Kurt Ahn
  */
 public class PCReversal {
-	private static final String[][] QUESTIONS = {
+	/**
+	 * Question names by page, as the website knows them. Everything else
+	 * refers to questions by their ordinals in {@link Questions}.
+	 */
+	static final String[][] QUESTIONS = {
 		{
 			"globalisationinevitable",
 			"countryrightorwrong",
@@ -182,7 +202,7 @@ public class PCReversal {
 		}
 	};
 	
-	private static class ScoreInt {
+	static class ScoreInt {
 		public final int economic, social;
 		
 		public ScoreInt(int economic, int social) {
@@ -200,7 +220,7 @@ public class PCReversal {
 		}
 	}
 	
-	private static class ScoreFloat {
+	static class ScoreFloat {
 		public final float economic, social;
 		
 		public ScoreFloat(float economic, float social) {
@@ -218,7 +238,7 @@ public class PCReversal {
 		}
 	}
 	
-	private static class QuestionInt {
+	static class QuestionInt {
 		public static int ECONOMIC = 0, SOCIAL = 1;
 		
 		public final int axis;
@@ -247,7 +267,7 @@ public class PCReversal {
 		}
 	}
 	
-	private static class QuestionFloat {
+	static class QuestionFloat {
 		public static int ECONOMIC = 0, SOCIAL = 1;
 		
 		public final int axis;
@@ -276,74 +296,57 @@ public class PCReversal {
 		}
 	}
 	
-	private static String parameters(Map<String, Integer> p) {
-		StringJoiner joiner = new StringJoiner("&");
-		p.entrySet().stream().forEach(
-				e -> {
-			try {
-				joiner.add(
-						URLEncoder.encode(e.getKey(), "UTF-8") + "=" +
-						URLEncoder.encode(e.getValue().toString(), "UTF-8"));
-			} catch (Exception x) {
-				x.printStackTrace();
-			}
-		});
-		return joiner.toString();
-	}
+	/**
+	 * Fields the carried scores are read from on pages 1-5.
+	 */
+	private static final FieldScanner CARRIED = new FieldScanner(false,
+			"'carried_ec' type='hidden' value='",
+			"'carried_soc' type='hidden' value='");
 	
-	private static int extractInt(String source, String regex) {
-		Matcher broad = Pattern
-				.compile(regex)
-				.matcher(source);
-		if (broad.find()) {
-			Matcher narrow = Pattern.compile("-?\\d+").matcher(broad.group(0));
-			if (narrow.find())
-				return Integer.parseInt(narrow.group(0));
-		}
-		throw new RuntimeException("AHHH?");
-	}
+	/**
+	 * Fields the final scores are read from on page 6.
+	 */
+	private static final FieldScanner RESULT = new FieldScanner(true, "ec=", "soc=");
 	
-	private static float extractFloat(String source, String regex) {
-		Matcher broad = Pattern
-				.compile(regex)
-				.matcher(source);
-		if (broad.find()) {
-			Matcher narrow = Pattern.compile("-?\\d+\\.\\d+").matcher(broad.group(0));
-			if (narrow.find())
-				return Float.parseFloat(narrow.group(0));
-		}
-		throw new RuntimeException("AHHH?");
+	/**
+	 * Where pages are sent, the website unless pointed elsewhere.
+	 */
+	static Transport transport = new ThrottledTransport(new HttpTransport());
+	
+	private static InputStream connect(
+			int page, AnswerVector response, ScoreInt carry)
+					throws IOException {
+		byte[] parameters = FormEncoder.buffer();
+		int length = FormEncoder.encode(parameters, page, response, carry);
+		return transport.post(parameters, 0, length);
 	}
 	
-	private static HttpURLConnection connect(Map<String, Integer> response)
-			throws IOException {
-		URL url = new URL("https://www.politicalcompass.org/test");
-		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-		connection.setRequestMethod("POST");
-		connection.setDoOutput(true);
-		String parameters = parameters(response);
-//		System.out.println(parameters);
-		connection.setRequestProperty(
-				"Content-Type",
-				"application/x-www-form-urlencoded; charset=UTF-8");
-		connection.setRequestProperty(
-				"Content-Length",
-				String.valueOf(parameters.length()));
-		connection.connect();
-		try (OutputStream output = connection.getOutputStream()) {
-			output.write(parameters.getBytes());
+	/**
+	 * Probes the website.
+	 */
+	static final Prober LIVE = new Prober() {
+		@Override
+		public ScoreInt score1Through5(
+				int page, AnswerVector response, ScoreInt carry)
+						throws IOException {
+			return PCReversal.score1Through5(page, response, carry);
 		}
-		return connection;
-	}
+		
+		@Override
+		public ScoreFloat score6(AnswerVector response, ScoreInt carry)
+				throws IOException {
+			return PCReversal.score6(response, carry);
+		}
+	};
 	
-	private static ScoreInt score1Through5(
-			int page, Map<String, Integer> response) 
-					throws IOException {
-		return score1Through5(page, response, new ScoreInt(0, 0));
-	}
+	/**
+	 * What {@link #run(AnswerVector)}, {@link #pages1Through5()} and
+	 * {@link #page6()} probe.
+	 */
+	private static CachingProber prober = new CachingProber(LIVE);
 	
 	private static ScoreInt score1Through5(
-			int page, Map<String, Integer> response, ScoreInt carry) 
+			int page, AnswerVector response, ScoreInt carry) 
 					throws IOException {
 		if (page < 1 || page > 5)
 			throw new IllegalArgumentException(String.format(
@@ -352,147 +355,53 @@ public class PCReversal {
 					"primary school?",
 					page));
 		
-		Map<String, Integer> responseCopy = new HashMap<>(response);
-		responseCopy.put("page", page);
-		responseCopy.put("carried_ec", carry == null ? 0 : carry.economic);
-		responseCopy.put("carried_soc", carry == null ? 0 : carry.social);
-		
-		HttpURLConnection connection = connect(responseCopy);
-		try (InputStream input = connection.getInputStream()) {
-			BufferedReader reader = new BufferedReader(
-					new InputStreamReader(input, "UTF-8"));
-			StringBuilder source = new StringBuilder();
-			String line = null;
-			while ((line = reader.readLine()) != null)
-				source.append(line + "\n");
-			
-			int e = extractInt(
-					source.toString(),
-					"'carried_ec' type='hidden' value='-?\\d+'");
-			int s = extractInt(
-					source.toString(),
-					"'carried_soc' type='hidden' value='-?\\d+'");
-			return new ScoreInt(e, s);
+		double[] score = new double[2];
+		try (InputStream input = connect(page, response, carry)) {
+			CARRIED.scan(input, score);
 		}
+		return new ScoreInt((int) score[0], (int) score[1]);
 	}
 	
-	private static ScoreFloat score6(Map<String, Integer> response)
-			throws IOException {
-		return score6(response, new ScoreInt(0, 0));
-	}
-	
-	private static ScoreFloat score6(Map<String, Integer> response, ScoreInt carry)
+	private static ScoreFloat score6(AnswerVector response, ScoreInt carry)
 			throws IOException {
-		Map<String, Integer> responseCopy = new HashMap<>(response);
-		responseCopy.put("page", 6);
-		responseCopy.put("carried_ec", carry == null ? 0 : carry.economic);
-		responseCopy.put("carried_soc", carry == null ? 0 : carry.social);
-		
-		HttpURLConnection connection = connect(responseCopy);
-		try (InputStream input = connection.getInputStream()) {
-			BufferedReader reader = new BufferedReader(
-					new InputStreamReader(input, "UTF-8"));
-			StringBuilder source = new StringBuilder();
-			String line = null;
-			while ((line = reader.readLine()) != null)
-				source.append(line + "\n");
-//			System.out.println(source);
-			float e = extractFloat(
-					source.toString(),
-					"ec=-?\\d+\\.\\d+");
-			float s = extractFloat(
-					source.toString(),
-					"soc=-?\\d+\\.\\d+");
-			return new ScoreFloat(e, s);
+		double[] score = new double[2];
+		try (InputStream input = connect(6, response, carry)) {
+			RESULT.scan(input, score);
 		}
+		return new ScoreFloat((float) score[0], (float) score[1]);
 	}
 	
-	private static void pages1Through5() throws IOException {
-		for (int page = 1; page < 6; ++page) {
-			Map<String, Integer> baseResponse = new HashMap<>();
-			for (String q : QUESTIONS[page - 1])
-				baseResponse.put(q, 0);
-			ScoreInt base = score1Through5(page, baseResponse);
-//			System.out.println("Base: " + base);
-			
-			for (int q = 0; q < QUESTIONS[page - 1].length; ++q) {
-				Map<String, Integer> response = new HashMap<>();
-				
-				int axis = QuestionInt.ECONOMIC;
-				int[] increments = new int[3];
-				
-				for (int answer = 1; answer < 4; ++answer) {
-					for (int qq = 0; qq < QUESTIONS[page - 1].length; ++qq)
-						response.put(QUESTIONS[page - 1][qq], qq == q ? answer : 0);
-					
-					ScoreInt difference = score1Through5(page, response).sub(base);
-					if (difference.economic == 0) {
-						axis = QuestionInt.SOCIAL;
-						increments[answer - 1] = difference.social;
-					} else {
-						assert difference.social == 0;
-						axis = QuestionInt.ECONOMIC;
-						increments[answer - 1] = difference.economic;
-					}
-				}
-				
+	private static QuestionInt[][] pages1Through5() throws IOException {
+		QuestionInt[][] chart = new ChartReconstructor(
+				prober, false, ChartReconstructor.DEFAULT_IN_FLIGHT).pages1Through5();
+		for (int page = 1; page < 6; ++page)
+			for (int q = 0; q < chart[page - 1].length; ++q)
 				System.out.println(String.format(
 						"%d\t%d\t%s",
 						page,
 						q + 1,
-						new QuestionInt(axis, increments)));
-			}
-		}
+						chart[page - 1][q]));
+		return chart;
 	}
 	
-	private static void page6() throws IOException {
-		Map<String, Integer> baseResponse = new HashMap<>();
-		for (String q : QUESTIONS[5])
-			baseResponse.put(q, 0);
-		ScoreFloat base = score6(baseResponse);
-		
-		for (int q = 0; q < QUESTIONS[5].length; ++q) {
-			Map<String, Integer> response = new HashMap<>();
-			
-			int axis = QuestionInt.ECONOMIC;
-			float[] increments = new float[3];
-			
-			for (int answer = 1; answer < 4; ++answer) {
-				for (int qq = 0; qq < QUESTIONS[5].length; ++qq)
-					response.put(QUESTIONS[5][qq], qq == q ? answer : 0);
-				
-				ScoreFloat difference = score6(response).sub(base);
-				if (difference.economic == 0) {
-					axis = QuestionInt.SOCIAL;
-					increments[answer - 1] = difference.social;
-				} else {
-					assert difference.social == 0;
-					axis = QuestionInt.ECONOMIC;
-					increments[answer - 1] = difference.economic;
-				}
-			}
-			
+	private static QuestionFloat[] page6() throws IOException {
+		QuestionFloat[] chart = new ChartReconstructor(
+				prober, false, ChartReconstructor.DEFAULT_IN_FLIGHT).page6();
+		for (int q = 0; q < chart.length; ++q)
 			System.out.println(String.format(
-					"%d\t%d\t%s",
+					"# %d\t%d\t%s",
 					6,
 					q + 1,
-					new QuestionFloat(axis, increments)));
-		}
+					chart[q]));
+		return chart;
 	}
 	
 	private static ScoreFloat run(Map<String, Integer> response) throws IOException {
-		ScoreInt carry = null;
-		for (int page = 1; page < 6; ++page) {
-			Map<String, Integer> pageResponse = new HashMap<>();
-			for (String q : QUESTIONS[page - 1])
-				pageResponse.put(q, response.get(q));
-			carry = score1Through5(page, pageResponse, carry);
-		}
-		
-		Map<String, Integer> pageResponse = new HashMap<>();
-		for (String q : QUESTIONS[5])
-			pageResponse.put(q, response.get(q));
-		return score6(pageResponse, carry);
+		return run(AnswerVector.of(response));
+	}
+	
+	private static ScoreFloat run(AnswerVector response) throws IOException {
+		return prober.run(response);
 	}
 	
 	public static void main(String[] args) throws IOException {
@@ -502,7 +411,20 @@ public class PCReversal {
 //						.collect(Collectors.toMap(q -> q, q -> 2))
 //		));
 		
-		pages1Through5();
-		page6();
+		Path journal = Paths.get("probes.journal");
+		try (CachingProber cache = CachingProber.open(
+				LIVE, CachingProber.DEFAULT_CAPACITY, journal)) {
+			prober = cache;
+			QuestionInt[][] chart = pages1Through5();
+			Rescaler.Result page6 = Rescaler.rescale(chart, page6());
+			System.out.println("# " + page6.toString().replace("\n", "\n# "));
+			for (int q = 0; q < page6.page6.length; ++q)
+				System.out.println(String.format(
+						"%d\t%d\t%s",
+						6,
+						q + 1,
+						page6.page6[q]));
+		}
+		Files.delete(journal);
 	}
 }
@@ -0,0 +1,45 @@
+package com.github.pcre;
+
+/**
+ * Respondents as {@link AnswerVector} halves, without an object per respondent.
+ */
+interface PackedAnswers {
+	int size();
+	
+	/**
+	 * {@link AnswerVector#low} of respondent {@code i}.
+	 */
+	long low(int i);
+	
+	/**
+	 * {@link AnswerVector#high} of respondent {@code i}.
+	 */
+	long high(int i);
+	
+	/**
+	 * Wraps {@code low} and {@code high} halves stored one after the other.
+	 */
+	static PackedAnswers of(long[] packed) {
+		if ((packed.length & 1) != 0)
+			throw new IllegalArgumentException(String.format(
+					"Length of packed answers (%d) needs to be even.",
+					packed.length));
+		
+		return new PackedAnswers() {
+			@Override
+			public int size() {
+				return packed.length >> 1;
+			}
+			
+			@Override
+			public long low(int i) {
+				return packed[i << 1];
+			}
+			
+			@Override
+			public long high(int i) {
+				return packed[i << 1 | 1];
+			}
+		};
+	}
+}
@@ -0,0 +1,209 @@
+package com.github.pcre;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+import com.github.pcre.PCReversal.ScoreFloat;
+import com.github.pcre.PCReversal.ScoreInt;
+
+/**
+ * File that every probe a {@link CachingProber} passes on is appended to, with
+ * its score, and that the cache is filled from when it's opened again.
+ *
+ * <p>
+ * A reconstruction that dies halfway, because the website went away for a
+ * moment, can then be started again on the same journal and only sends the
+ * probes it hadn't got to. Nothing is lost when the process dies without
+ * closing the journal, short of the last batch.
+ *
+ * <p>
+ * Records are forced to disk every {@code batch} probes and on
+ * {@link #close()} rather than one by one, since a probe lost in a crash only
+ * costs sending it again. Big-endian, the file holds:
+ * <li>
+ * "PCRJ" in ASCII
+ * <li>
+ * Format version ({@code int}, currently 1)
+ * </li>
+ *
+ * <p>
+ * followed by one fixed-size record per probe: a {@link ProbeKey}, the two
+ * scores ({@code int}s for pages 1-5 and {@code float}s for page 6) and a
+ * CRC32 of the rest of the record. A torn record at the end, left by a crash
+ * during a write, is cut off when the journal is opened. A probe may be in the
+ * journal more than once; the last record wins.
+ */
+class ProbeJournal implements AutoCloseable {
+	private static final int MAGIC = 'P' << 24 | 'C' << 16 | 'R' << 8 | 'J';
+	
+	private static final int FORMAT = 1;
+	
+	private static final int HEADER = 8;
+	
+	private static final int RECORD = ProbeKey.BYTES + 8 + 4;
+	
+	public static final int DEFAULT_BATCH = 32;
+	
+	private final FileChannel channel;
+	
+	private final int batch;
+	
+	private int replayed;
+	
+	private int unforced;
+	
+	private final ByteArrayOutputStream record = new ByteArrayOutputStream(RECORD);
+	
+	private final CRC32 crc = new CRC32();
+	
+	private ProbeJournal(FileChannel channel, int batch) {
+		this.channel = channel;
+		this.batch = batch;
+	}
+	
+	/**
+	 * Opens a journal, creating it if it doesn't exist, and replays it.
+	 *
+	 * @param batch number of probes to force to disk at a time
+	 * @param replay given each probe in the journal and its score, a
+	 * {@link ScoreInt} or {@link ScoreFloat}, oldest first
+	 */
+	public static ProbeJournal open(Path path, int batch,
+			BiConsumer<ProbeKey, Object> replay) throws IOException {
+		if (batch < 1)
+			throw new IllegalArgumentException(String.format(
+					"Batch size (%d) needs to be positive.", batch));
+		
+		FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			ProbeJournal journal = new ProbeJournal(channel, batch);
+			journal.replayed = journal.replay(replay);
+			return journal;
+		} catch (IOException | RuntimeException x) {
+			channel.close();
+			throw x;
+		}
+	}
+	
+	/**
+	 * Reads the records in the journal, or writes the header if it's empty,
+	 * and leaves the channel at the end of the last whole record.
+	 *
+	 * @return number of records read
+	 */
+	private int replay(BiConsumer<ProbeKey, Object> replay) throws IOException {
+		if (channel.size() < HEADER) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			header.putInt(MAGIC).putInt(FORMAT).flip();
+			channel.truncate(0);
+			channel.write(header, 0);
+			channel.force(true);
+			channel.position(HEADER);
+			return 0;
+		}
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		channel.read(header, 0);
+		header.flip();
+		if (header.getInt() != MAGIC)
+			throw new IllegalArgumentException("The file isn't a probe journal.");
+		int format = header.getInt();
+		if (format != FORMAT)
+			throw new IllegalArgumentException(String.format(
+					"The journal is in format %d but only %d is supported.",
+					format, FORMAT));
+		
+		long count = (channel.size() - HEADER) / RECORD;
+		ByteBuffer buffer = ByteBuffer.allocate(RECORD);
+		int read = 0;
+		for (; read < count; ++read) {
+			buffer.clear();
+			channel.read(buffer, HEADER + (long) read * RECORD);
+			
+			crc.reset();
+			crc.update(buffer.array(), 0, RECORD - 4);
+			if ((int) crc.getValue() != buffer.getInt(RECORD - 4))
+				break;
+			
+			DataInputStream input = new DataInputStream(
+					new ByteArrayInputStream(buffer.array(), 0, RECORD - 4));
+			ProbeKey key = ProbeKey.read(input);
+			if (key.page < PCReversal.QUESTIONS.length)
+				replay.accept(key, new ScoreInt(input.readInt(), input.readInt()));
+			else
+				replay.accept(key, new ScoreFloat(input.readFloat(), input.readFloat()));
+		}
+		
+		long end = HEADER + (long) read * RECORD;
+		if (channel.size() > end)
+			channel.truncate(end);
+		channel.position(end);
+		return read;
+	}
+	
+	/**
+	 * Probes read back from the journal when it was opened.
+	 */
+	public int replayed() {
+		return replayed;
+	}
+	
+	/**
+	 * @param score {@link ScoreInt} for pages 1-5 or {@link ScoreFloat} for
+	 * page 6
+	 */
+	public synchronized void append(ProbeKey key, Object score)
+			throws IOException {
+		record.reset();
+		DataOutputStream output = new DataOutputStream(record);
+		key.write(output);
+		if (score instanceof ScoreInt) {
+			output.writeInt(((ScoreInt) score).economic);
+			output.writeInt(((ScoreInt) score).social);
+		} else {
+			output.writeFloat(((ScoreFloat) score).economic);
+			output.writeFloat(((ScoreFloat) score).social);
+		}
+		crc.reset();
+		crc.update(record.toByteArray());
+		output.writeInt((int) crc.getValue());
+		
+		ByteBuffer buffer = ByteBuffer.wrap(record.toByteArray());
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		
+		if (++unforced >= batch)
+			force();
+	}
+	
+	/**
+	 * Forces everything appended so far to disk.
+	 */
+	public synchronized void force() throws IOException {
+		if (unforced > 0) {
+			channel.force(false);
+			unforced = 0;
+		}
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			force();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.github.pcre;
+
+import static com.github.pcre.PCReversal.QUESTIONS;
+import static com.github.pcre.Questions.OFFSETS;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.github.pcre.PCReversal.ScoreInt;
+
+/**
+ * Everything that's sent for a probe, which is all its score depends on: the
+ * page, the answers to the questions on that page and the score carried over
+ * to it.
+ *
+ * <p>
+ * Answers to questions on other pages aren't sent, so they're masked out, and
+ * a missing carry is the same as a carry of 0, making two probes equal
+ * whenever the website would see the same form.
+ */
+final class ProbeKey {
+	/**
+	 * Bits of {@link AnswerVector#low} and {@link AnswerVector#high} holding
+	 * the answers on each page.
+	 */
+	private static final long[] LOW_MASKS = new long[QUESTIONS.length];
+	
+	private static final long[] HIGH_MASKS = new long[QUESTIONS.length];
+	
+	static {
+		for (int page = 0; page < QUESTIONS.length; ++page) {
+			int[] answers = new int[Questions.COUNT];
+			Arrays.fill(answers, OFFSETS[page], OFFSETS[page + 1], 3);
+			AnswerVector mask = AnswerVector.of(answers);
+			LOW_MASKS[page] = mask.low;
+			HIGH_MASKS[page] = mask.high;
+		}
+	}
+	
+	/**
+	 * Size of a key written by {@link #write(DataOutput)}.
+	 */
+	public static final int BYTES = 1 + 8 + 8 + 4 + 4;
+	
+	public final int page;
+	
+	public final long low, high;
+	
+	public final int economic, social;
+	
+	private ProbeKey(int page, long low, long high, int economic, int social) {
+		this.page = page;
+		this.low = low;
+		this.high = high;
+		this.economic = economic;
+		this.social = social;
+	}
+	
+	/**
+	 * @param carry {@code null} for none
+	 */
+	public static ProbeKey of(int page, AnswerVector response, ScoreInt carry) {
+		if (page < 1 || page > QUESTIONS.length)
+			throw new IllegalArgumentException(String.format(
+					"Page (%d) needs to be in [1, %d].", page, QUESTIONS.length));
+		
+		return new ProbeKey(
+				page,
+				response.low & LOW_MASKS[page - 1],
+				response.high & HIGH_MASKS[page - 1],
+				carry == null ? 0 : carry.economic,
+				carry == null ? 0 : carry.social);
+	}
+	
+	public AnswerVector response() {
+		return new AnswerVector(low, high);
+	}
+	
+	public ScoreInt carry() {
+		return new ScoreInt(economic, social);
+	}
+	
+	public void write(DataOutput output) throws IOException {
+		output.writeByte(page);
+		output.writeLong(low);
+		output.writeLong(high);
+		output.writeInt(economic);
+		output.writeInt(social);
+	}
+	
+	/**
+	 * @throws IllegalArgumentException if the key couldn't have been written by
+	 * {@link #write(DataOutput)}
+	 */
+	public static ProbeKey read(DataInput input) throws IOException {
+		int page = input.readByte();
+		long low = input.readLong(), high = input.readLong();
+		int economic = input.readInt(), social = input.readInt();
+		ProbeKey key = of(page, new AnswerVector(low, high),
+				new ScoreInt(economic, social));
+		if (key.low != low || key.high != high)
+			throw new IllegalArgumentException(String.format(
+					"Probe of page %d has answers to questions on other pages.",
+					page));
+		return key;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof ProbeKey))
+			return false;
+		ProbeKey k = (ProbeKey) o;
+		return page == k.page && low == k.low && high == k.high &&
+				economic == k.economic && social == k.social;
+	}
+	
+	@Override
+	public int hashCode() {
+		long h = low * 0x9E3779B97F4A7C15L + high;
+		h = h * 31 + page;
+		h = h * 31 + economic;
+		h = h * 31 + social;
+		return (int) (h ^ (h >>> 32));
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("page %d, %s, carry %d %d",
+				page, response(), economic, social);
+	}
+}
@@ -0,0 +1,35 @@
+package com.github.pcre;
+
+import java.io.IOException;
+
+import com.github.pcre.PCReversal.ScoreFloat;
+import com.github.pcre.PCReversal.ScoreInt;
+
+/**
+ * Submits a page of the test and reads back the score, like
+ * {@link PCReversal#score1Through5(int, AnswerVector, ScoreInt)} and
+ * {@link PCReversal#score6(AnswerVector, ScoreInt)} do with the website.
+ * Only the answers to questions on the submitted page are sent.
+ */
+interface Prober {
+	/**
+	 * @return score carried over to the next page
+	 */
+	ScoreInt score1Through5(int page, AnswerVector response, ScoreInt carry)
+			throws IOException;
+	
+	/**
+	 * @return final score
+	 */
+	ScoreFloat score6(AnswerVector response, ScoreInt carry) throws IOException;
+	
+	/**
+	 * Goes through the whole test, like {@link PCReversal#run(AnswerVector)}.
+	 */
+	default ScoreFloat run(AnswerVector response) throws IOException {
+		ScoreInt carry = null;
+		for (int page = 1; page < 6; ++page)
+			carry = score1Through5(page, response, carry);
+		return score6(response, carry);
+	}
+}
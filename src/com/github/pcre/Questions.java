@@ -0,0 +1,148 @@
+package com.github.pcre;
+
+import static com.github.pcre.PCReversal.QUESTIONS;
+
+import java.util.Arrays;
+
+/**
+ * Every question of the test by ordinal, numbering all questions in the order
+ * they appear in {@link PCReversal#QUESTIONS}, which is how everything else
+ * refers to questions: answers, charts and probes are all arrays or bit fields
+ * indexed by ordinal.
+ *
+ * <p>
+ * Names only come in when reading them from outside (form fields, CSV headers,
+ * maps passed to {@link PCReversal#run(java.util.Map)}) and going out to the
+ * website. Looking a name up goes through a perfect hash built when the class
+ * is loaded: the name's {@link String#hashCode()} is multiplied by a seed
+ * picked so that no two questions land in the same slot, so a lookup is one
+ * multiplication, one array read and one {@link String#equals(Object)}.
+ */
+final class Questions {
+	/**
+	 * Number of pages.
+	 */
+	static final int PAGES = QUESTIONS.length;
+	
+	/**
+	 * Total number of questions.
+	 */
+	static final int COUNT;
+	
+	/**
+	 * Ordinal of the first question on each page, and {@link #COUNT} after
+	 * the last page: {@code OFFSETS[page - 1]} to {@code OFFSETS[page]} are
+	 * the questions on a page.
+	 */
+	static final int[] OFFSETS = new int[PAGES + 1];
+	
+	private static final String[] NAMES;
+	
+	/**
+	 * Page (1-6) and position on the page (from 1) by ordinal.
+	 */
+	private static final byte[] PAGE, POSITION;
+	
+	/**
+	 * Bits of the hash used to pick a slot.
+	 */
+	private static final int BITS = 10;
+	
+	/**
+	 * Multiplier of the perfect hash.
+	 */
+	private static final int SEED;
+	
+	/**
+	 * Ordinal by slot, or -1 for empty slots.
+	 */
+	private static final byte[] SLOTS = new byte[1 << BITS];
+	
+	static {
+		int count = 0;
+		for (int page = 0; page < PAGES; ++page) {
+			OFFSETS[page] = count;
+			count += QUESTIONS[page].length;
+		}
+		OFFSETS[PAGES] = COUNT = count;
+		
+		NAMES = new String[COUNT];
+		PAGE = new byte[COUNT];
+		POSITION = new byte[COUNT];
+		for (int page = 0; page < PAGES; ++page) {
+			for (int q = 0; q < QUESTIONS[page].length; ++q) {
+				NAMES[OFFSETS[page] + q] = QUESTIONS[page][q];
+				PAGE[OFFSETS[page] + q] = (byte) (page + 1);
+				POSITION[OFFSETS[page] + q] = (byte) (q + 1);
+			}
+		}
+		
+		// With 62 questions in 1024 slots, about one seed in six works.
+		int seed = 0x9E3779B9;
+		while (!fill(seed))
+			seed += 2;
+		SEED = seed;
+	}
+	
+	private Questions() {}
+	
+	/**
+	 * Tries to put every question in its own slot.
+	 */
+	private static boolean fill(int seed) {
+		Arrays.fill(SLOTS, (byte) -1);
+		for (int ordinal = 0; ordinal < COUNT; ++ordinal) {
+			int slot = slot(NAMES[ordinal].hashCode(), seed);
+			if (SLOTS[slot] >= 0)
+				return false;
+			SLOTS[slot] = (byte) ordinal;
+		}
+		return true;
+	}
+	
+	private static int slot(int hash, int seed) {
+		return hash * seed >>> (32 - BITS);
+	}
+	
+	/**
+	 * @param page 1-6
+	 * @param question position on the page, from 1
+	 */
+	static int ordinal(int page, int question) {
+		return OFFSETS[page - 1] + question - 1;
+	}
+	
+	/**
+	 * Ordinal of the question with the given name, or -1 if there's no such
+	 * question.
+	 */
+	static int ordinal(String name) {
+		int ordinal = SLOTS[slot(name.hashCode(), SEED)];
+		return ordinal >= 0 && NAMES[ordinal].equals(name) ? ordinal : -1;
+	}
+	
+	static String name(int ordinal) {
+		return NAMES[ordinal];
+	}
+	
+	/**
+	 * Page (1-6) a question is on.
+	 */
+	static int page(int ordinal) {
+		return PAGE[ordinal];
+	}
+	
+	/**
+	 * Position of a question on its page, from 1.
+	 */
+	static int question(int ordinal) {
+		return POSITION[ordinal];
+	}
+	
+	/**
+	 * Number of questions on a page (1-6).
+	 */
+	static int length(int page) {
+		return OFFSETS[page] - OFFSETS[page - 1];
+	}
+}
@@ -0,0 +1,193 @@
+package com.github.pcre;
+
+import com.github.pcre.PCReversal.QuestionFloat;
+import com.github.pcre.PCReversal.QuestionInt;
+
+/**
+ * Turns the page 6 increments given by {@link PCReversal#page6()}, which are
+ * in normalized units, into integers on the same scale as pages 1-5.
+ *
+ * <p>
+ * An increment of <i>i</i> raw points moves the normalized score by
+ * <i>20 i / R</i>, where <i>R = max - min</i> is the range of raw scores on
+ * its axis. <i>R</i> itself is the sum, over every question on the axis, of
+ * the range of its increments (with "Strongly Disagree" as 0), so it's made of
+ * a known part <i>R<sub>1-5</sub></i> from pages 1-5 and an unknown part from
+ * page 6. Each candidate <i>R</i> is tried in turn: the page 6 increments are
+ * scaled by <i>R / 20</i> and rounded, and the candidate is kept if they add
+ * up to exactly <i>R - R<sub>1-5</sub></i> and reproduce every measured
+ * increment to within {@link #TOLERANCE}. The first guess comes from solving
+ * the same sum with the measured increments, so only a small window around it
+ * needs to be searched, but the search goes up to twice that to be safe.
+ *
+ * <p>
+ * Measured increments are differences of two scores rounded to hundredths, so
+ * they're within 0.01 of the exact ones.
+ */
+class Rescaler {
+	/**
+	 * Most a measured increment can be off by.
+	 */
+	public static final double TOLERANCE = 0.0101;
+	
+	/**
+	 * Rescaled page 6, with how well it fits.
+	 */
+	static class Result {
+		public final QuestionInt[] page6;
+		
+		/**
+		 * <i>max - min</i> of raw scores by axis.
+		 */
+		public final int[] ranges;
+		
+		/**
+		 * Largest difference between a measured increment and the rescaled one
+		 * in normalized units, by question.
+		 */
+		public final double[] residuals;
+		
+		/**
+		 * Number of ranges that fit, by axis; more than 1 means the measured
+		 * increments couldn't tell them apart, and the best fit was taken.
+		 */
+		public final int[] candidates;
+		
+		Result(QuestionInt[] page6, int[] ranges, double[] residuals,
+				int[] candidates) {
+			this.page6 = page6;
+			this.ranges = ranges;
+			this.residuals = residuals;
+			this.candidates = candidates;
+		}
+		
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder(String.format(
+					"Ranges: economic %d (%d fitting), social %d (%d fitting)",
+					ranges[QuestionInt.ECONOMIC], candidates[QuestionInt.ECONOMIC],
+					ranges[QuestionInt.SOCIAL], candidates[QuestionInt.SOCIAL]));
+			for (int q = 0; q < page6.length; ++q)
+				builder.append(String.format("\n6\t%d\t%s\t(residual %.4f)",
+						q + 1, page6[q], residuals[q]));
+			return builder.toString();
+		}
+	}
+	
+	private Rescaler() {
+	}
+	
+	/**
+	 * @param pages1Through5 chart for pages 1-5, as given by
+	 * {@link PCReversal#pages1Through5()}
+	 * @param page6 page 6, as given by {@link PCReversal#page6()}
+	 * @throws IllegalArgumentException if no range fits the measured increments
+	 */
+	public static Result rescale(QuestionInt[][] pages1Through5,
+			QuestionFloat[] page6) {
+		int[] known = new int[2];
+		for (QuestionInt[] page : pages1Through5)
+			for (QuestionInt question : page)
+				known[question.axis] += range(question.increments);
+		
+		QuestionInt[] rows = new QuestionInt[page6.length];
+		double[] residuals = new double[page6.length];
+		int[] ranges = new int[2], candidates = new int[2];
+		for (int axis = 0; axis < 2; ++axis) {
+			double measured = 0;
+			for (QuestionFloat question : page6)
+				if (question.axis == axis)
+					measured += range(question.increments);
+			if (measured == 0) {
+				// Nothing on page 6 moves this axis.
+				ranges[axis] = known[axis];
+				candidates[axis] = 1;
+				for (int q = 0; q < page6.length; ++q)
+					if (page6[q].axis == axis)
+						rows[q] = new QuestionInt(axis, new int[3]);
+				continue;
+			}
+			if (measured >= 20)
+				throw new IllegalArgumentException(String.format(
+						"Page 6 increments on axis %d span %.2f, but a whole axis " +
+						"only spans 20.",
+						axis, measured));
+			
+			// R = known + R * measured / 20, give or take the rounding.
+			double guess = known[axis] / (1 - measured / 20);
+			int best = -1;
+			double bestResidual = Double.MAX_VALUE;
+			for (int r = known[axis] + 1; r <= 2 * guess + 20; ++r) {
+				int sum = known[axis];
+				double residual = 0;
+				for (QuestionFloat question : page6) {
+					if (question.axis != axis)
+						continue;
+					int[] increments = scale(question.increments, r);
+					sum += range(increments);
+					residual = Math.max(residual,
+							residual(question.increments, increments, r));
+				}
+				
+				if (sum == r && residual <= TOLERANCE) {
+					++candidates[axis];
+					if (residual < bestResidual) {
+						best = r;
+						bestResidual = residual;
+					}
+				}
+			}
+			if (best < 0)
+				throw new IllegalArgumentException(String.format(
+						"No range on axis %d fits the page 6 increments; they may " +
+						"not have been measured against the same pages 1-5.",
+						axis));
+			
+			ranges[axis] = best;
+			for (int q = 0; q < page6.length; ++q) {
+				if (page6[q].axis != axis)
+					continue;
+				int[] increments = scale(page6[q].increments, best);
+				rows[q] = new QuestionInt(axis, increments);
+				residuals[q] = residual(page6[q].increments, increments, best);
+			}
+		}
+		return new Result(rows, ranges, residuals, candidates);
+	}
+	
+	private static int[] scale(float[] increments, int range) {
+		int[] scaled = new int[increments.length];
+		for (int a = 0; a < increments.length; ++a)
+			scaled[a] = (int) Math.round(increments[a] * range / 20.0);
+		return scaled;
+	}
+	
+	private static double residual(float[] measured, int[] increments, int range) {
+		double residual = 0;
+		for (int a = 0; a < measured.length; ++a)
+			residual = Math.max(residual,
+					Math.abs(measured[a] - 20.0 * increments[a] / range));
+		return residual;
+	}
+	
+	/**
+	 * Range of the increments of a question, "Strongly Disagree" included.
+	 */
+	private static int range(int[] increments) {
+		int min = 0, max = 0;
+		for (int increment : increments) {
+			min = Math.min(min, increment);
+			max = Math.max(max, increment);
+		}
+		return max - min;
+	}
+	
+	private static double range(float[] increments) {
+		double min = 0, max = 0;
+		for (float increment : increments) {
+			min = Math.min(min, increment);
+			max = Math.max(max, increment);
+		}
+		return max - min;
+	}
+}
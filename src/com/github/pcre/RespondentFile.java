@@ -0,0 +1,239 @@
+package com.github.pcre;
+
+import static com.github.pcre.Questions.COUNT;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Respondents stored as fixed-width binary records and read through a memory
+ * map, so that {@link BulkScorer} can score them straight out of the page
+ * cache.
+ *
+ * <p>
+ * All values are little-endian. The file starts with a 16 byte header:
+ * <li>
+ * "PCRA" in ASCII
+ * <li>
+ * Format version ({@code int}, currently 1)
+ * <li>
+ * Version of the chart the answers were collected for, e.g. 20161110
+ * ({@code int})
+ * <li>
+ * Number of questions ({@code int}, 62)
+ * </li>
+ *
+ * <p>
+ * followed by one 16 byte record per respondent holding
+ * {@link AnswerVector#low} and {@link AnswerVector#high}.
+ */
+final class RespondentFile implements PackedAnswers, Closeable {
+	private static final int MAGIC = 'P' | 'C' << 8 | 'R' << 16 | 'A' << 24;
+	
+	private static final int FORMAT = 1;
+	
+	private static final int HEADER = 16;
+	
+	private static final int RECORD = 16;
+	
+	/**
+	 * Records per mapped segment; a single map can't be larger than 2GB.
+	 */
+	private static final int SEGMENT_BITS = 26;
+	
+	private final FileChannel channel;
+	
+	private final MappedByteBuffer[] segments;
+	
+	private final int chartVersion;
+	
+	private final int size;
+	
+	private RespondentFile(FileChannel channel, MappedByteBuffer[] segments,
+			int chartVersion, int size) {
+		this.channel = channel;
+		this.segments = segments;
+		this.chartVersion = chartVersion;
+		this.size = size;
+	}
+	
+	public static RespondentFile open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining())
+				if (channel.read(header) < 0)
+					throw new IllegalArgumentException(String.format(
+							"%s is too short to be a respondent file.", path));
+			header.flip();
+			
+			if (header.getInt() != MAGIC)
+				throw new IllegalArgumentException(String.format(
+						"%s isn't a respondent file.", path));
+			int format = header.getInt();
+			if (format != FORMAT)
+				throw new IllegalArgumentException(String.format(
+						"%s is in format %d but only %d is supported.",
+						path, format, FORMAT));
+			int chartVersion = header.getInt();
+			int count = header.getInt();
+			if (count != COUNT)
+				throw new IllegalArgumentException(String.format(
+						"%s has answers to %d questions but there are %d.",
+						path, count, COUNT));
+			
+			long records = (channel.size() - HEADER) / RECORD;
+			if (records > Integer.MAX_VALUE)
+				throw new IllegalArgumentException(String.format(
+						"%s has %d respondents, more than can be indexed.",
+						path, records));
+			
+			int size = (int) records;
+			MappedByteBuffer[] segments =
+					new MappedByteBuffer[(size + (1 << SEGMENT_BITS) - 1) >>> SEGMENT_BITS];
+			for (int i = 0; i < segments.length; ++i) {
+				long first = (long) i << SEGMENT_BITS;
+				long length = Math.min(1L << SEGMENT_BITS, size - first) * RECORD;
+				segments[i] = channel.map(
+						FileChannel.MapMode.READ_ONLY, HEADER + first * RECORD, length);
+				segments[i].order(ByteOrder.LITTLE_ENDIAN);
+			}
+			return new RespondentFile(channel, segments, chartVersion, size);
+		} catch (IOException | RuntimeException x) {
+			channel.close();
+			throw x;
+		}
+	}
+	
+	public int chartVersion() {
+		return chartVersion;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public long low(int i) {
+		return segments[i >>> SEGMENT_BITS]
+				.getLong((i & ((1 << SEGMENT_BITS) - 1)) * RECORD);
+	}
+	
+	@Override
+	public long high(int i) {
+		return segments[i >>> SEGMENT_BITS]
+				.getLong((i & ((1 << SEGMENT_BITS) - 1)) * RECORD + 8);
+	}
+	
+	public AnswerVector get(int i) {
+		return new AnswerVector(low(i), high(i));
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	/**
+	 * Writes a new respondent file, replacing any existing one.
+	 */
+	static class Writer implements Closeable {
+		private final FileChannel channel;
+		
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		
+		private long count;
+		
+		public Writer(Path path, int chartVersion) throws IOException {
+			channel = FileChannel.open(path,
+					StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			buffer.putInt(MAGIC).putInt(FORMAT).putInt(chartVersion).putInt(COUNT);
+		}
+		
+		public void write(long low, long high) throws IOException {
+			if (buffer.remaining() < RECORD)
+				flush();
+			buffer.putLong(low).putLong(high);
+			++count;
+		}
+		
+		public void write(AnswerVector response) throws IOException {
+			write(response.low, response.high);
+		}
+		
+		/**
+		 * Takes a response in the form {@link PCReversal#run(Map)} takes; see
+		 * {@link AnswerVector#of(Map)}.
+		 */
+		public void write(Map<String, Integer> response) throws IOException {
+			write(AnswerVector.of(response));
+		}
+		
+		/**
+		 * Number of respondents written so far.
+		 */
+		public long count() {
+			return count;
+		}
+		
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+	
+	/**
+	 * Converts responses in the form {@link PCReversal#run(Map)} takes.
+	 *
+	 * @return number of respondents written
+	 */
+	public static long fromMaps(Iterable<? extends Map<String, Integer>> responses,
+			Path path, int chartVersion) throws IOException {
+		try (Writer writer = new Writer(path, chartVersion)) {
+			for (Map<String, Integer> response : responses)
+				writer.write(response);
+			return writer.count();
+		}
+	}
+	
+	/**
+	 * Converts a CSV file as read by {@link CsvRespondents}.
+	 *
+	 * @return number of respondents written
+	 */
+	public static long fromCsv(Path csv, Path path, int chartVersion)
+			throws IOException {
+		try (InputStream input = Files.newInputStream(csv);
+				Writer writer = new Writer(path, chartVersion)) {
+			CsvRespondents respondents = new CsvRespondents(input);
+			while (respondents.next())
+				writer.write(respondents.low(), respondents.high());
+			return writer.count();
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.github.pcre;
+
+import java.util.Arrays;
+
+import com.github.pcre.PCReversal.QuestionInt;
+import com.github.pcre.PCReversal.ScoreFloat;
+
+/**
+ * Exact distribution of raw scores when every question is answered
+ * independently at random.
+ *
+ * <p>
+ * Since every question moves only one axis by an integral amount, the
+ * distribution of each axis is built by convolving the distributions of the
+ * questions on that axis one by one, over the range of raw scores the chart
+ * allows. The two axes are then independent, so the joint distribution is
+ * their product. This takes a few milliseconds instead of going through 4^62
+ * sets of answers.
+ */
+class ScoreDistribution {
+	private final Scorer scorer;
+	
+	/**
+	 * Probabilities by raw score minus the minimum for the axis.
+	 */
+	private final double[] economic, social;
+	
+	/**
+	 * @param answers probabilities of answering 0-3 by question ordinal:
+	 * {@code answers[ordinal][answer]}
+	 */
+	public ScoreDistribution(Scorer scorer, double[][] answers) {
+		if (answers.length != Questions.COUNT)
+			throw new IllegalArgumentException(String.format(
+					"There are answer probabilities for %d questions but there " +
+					"are %d.",
+					answers.length, Questions.COUNT));
+		for (int ordinal = 0; ordinal < answers.length; ++ordinal) {
+			double sum = 0;
+			for (double p : answers[ordinal])
+				sum += p;
+			if (answers[ordinal].length != 4 || Math.abs(sum - 1) > 1e-9)
+				throw new IllegalArgumentException(String.format(
+						"Answer probabilities for question #%d (%s) need to be 4 " +
+						"values that add up to 1.",
+						ordinal, Arrays.toString(answers[ordinal])));
+		}
+		
+		this.scorer = scorer;
+		economic = convolve(scorer, answers, QuestionInt.ECONOMIC);
+		social = convolve(scorer, answers, QuestionInt.SOCIAL);
+	}
+	
+	/**
+	 * Every answer to every question is equally likely.
+	 */
+	public static ScoreDistribution uniform(Scorer scorer) {
+		double[][] answers = new double[Questions.COUNT][];
+		for (int ordinal = 0; ordinal < answers.length; ++ordinal)
+			answers[ordinal] = new double[] {0.25, 0.25, 0.25, 0.25};
+		return new ScoreDistribution(scorer, answers);
+	}
+	
+	private static double[] convolve(Scorer scorer, double[][] answers, int axis) {
+		int min = scorer.min(axis);
+		double[] distribution = new double[scorer.max(axis) - min + 1];
+		double[] next = new double[distribution.length];
+		
+		// Raw scores reached so far are [low, high], relative to min.
+		int low = -min, high = -min;
+		distribution[low] = 1;
+		for (int ordinal = 0; ordinal < answers.length; ++ordinal) {
+			if (scorer.axis(ordinal) != axis)
+				continue;
+			
+			int lowest = 0, highest = 0;
+			for (int answer = 1; answer < 4; ++answer) {
+				lowest = Math.min(lowest, scorer.increment(ordinal, answer));
+				highest = Math.max(highest, scorer.increment(ordinal, answer));
+			}
+			
+			Arrays.fill(next, low + lowest, high + highest + 1, 0);
+			for (int answer = 0; answer < 4; ++answer) {
+				double p = answers[ordinal][answer];
+				if (p == 0)
+					continue;
+				int increment = scorer.increment(ordinal, answer);
+				for (int raw = low; raw <= high; ++raw)
+					next[raw + increment] += p * distribution[raw];
+			}
+			
+			double[] swap = distribution;
+			distribution = next;
+			next = swap;
+			low += lowest;
+			high += highest;
+		}
+		return distribution;
+	}
+	
+	/**
+	 * Probability of the given raw economic score.
+	 */
+	public double economic(int raw) {
+		int i = raw - scorer.min(QuestionInt.ECONOMIC);
+		return i < 0 || i >= economic.length ? 0 : economic[i];
+	}
+	
+	/**
+	 * Probability of the given raw social score.
+	 */
+	public double social(int raw) {
+		int i = raw - scorer.min(QuestionInt.SOCIAL);
+		return i < 0 || i >= social.length ? 0 : social[i];
+	}
+	
+	public double probability(int economic, int social) {
+		return economic(economic) * social(social);
+	}
+	
+	/**
+	 * Joint distribution indexed by raw scores minus their minimums:
+	 * {@code [economic - min][social - min]}.
+	 */
+	public double[][] histogram() {
+		double[][] histogram = new double[economic.length][social.length];
+		for (int e = 0; e < economic.length; ++e)
+			for (int s = 0; s < social.length; ++s)
+				histogram[e][s] = economic[e] * social[s];
+		return histogram;
+	}
+	
+	/**
+	 * Probabilities of landing in each quadrant, indexed like
+	 * {@link Scorer#quadrant(int, int)}.
+	 */
+	public double[] quadrants() {
+		int economicMin = scorer.min(QuestionInt.ECONOMIC);
+		int socialMin = scorer.min(QuestionInt.SOCIAL);
+		double right = 0, up = 0;
+		for (int e = 0; e < economic.length; ++e)
+			if ((scorer.quadrant(economicMin + e, socialMin) & 1) != 0)
+				right += economic[e];
+		for (int s = 0; s < social.length; ++s)
+			if ((scorer.quadrant(economicMin, socialMin + s) & 2) != 0)
+				up += social[s];
+		
+		return new double[] {
+				(1 - right) * (1 - up),
+				right * (1 - up),
+				(1 - right) * up,
+				right * up
+		};
+	}
+	
+	/**
+	 * Expected normalized scores, as a {@link ScoreFloat}.
+	 */
+	public ScoreFloat mean() {
+		int economicMin = scorer.min(QuestionInt.ECONOMIC);
+		int socialMin = scorer.min(QuestionInt.SOCIAL);
+		double e = 0, s = 0;
+		for (int i = 0; i < economic.length; ++i)
+			e += economic[i] * scorer.economic(economicMin + i);
+		for (int i = 0; i < social.length; ++i)
+			s += social[i] * scorer.social(socialMin + i);
+		return new ScoreFloat((float) e, (float) s);
+	}
+}
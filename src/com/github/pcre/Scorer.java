@@ -0,0 +1,181 @@
+package com.github.pcre;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import com.github.pcre.PCReversal.QuestionInt;
+import com.github.pcre.PCReversal.ScoreFloat;
+import com.github.pcre.PCReversal.ScoreInt;
+
+/**
+ * Scores responses offline from a reconstructed scoring chart, so that
+ * {@link PCReversal#run(Map)} doesn't need to go through the website.
+ *
+ * <p>
+ * The chart is given as a {@link Chart}, or as {@link QuestionInt} rows laid
+ * out like {@link PCReversal#QUESTIONS}, i.e.
+ * {@code chart[page - 1][question - 1]}. The page 6 rows printed by
+ * {@link PCReversal#page6()} have to be converted to integers first, with
+ * {@link Rescaler}.
+ *
+ * <p>
+ * Raw scores are summed relative to "Strongly Disagree" and normalized with
+ *
+ * <p>
+ * <i>(raw - mean) / (max - min) * 20</i>
+ *
+ * <p>
+ * where <i>max</i> and <i>min</i> are the extreme raw scores the chart allows
+ * on each axis. Since the normalization doesn't depend on where zero is, this
+ * gives the same result as the website.
+ */
+class Scorer {
+	private final Chart chart;
+	
+	private final int economicMin, economicMax, socialMin, socialMax;
+	
+	/**
+	 * Normalized scores by raw score minus the minimum.
+	 */
+	private final float[] economicScores, socialScores;
+	
+	public Scorer(QuestionInt[][] chart) {
+		this(new Chart(0, chart));
+	}
+	
+	public Scorer(Chart chart) {
+		this.chart = chart;
+		economicMin = chart.min(QuestionInt.ECONOMIC);
+		economicMax = chart.max(QuestionInt.ECONOMIC);
+		socialMin = chart.min(QuestionInt.SOCIAL);
+		socialMax = chart.max(QuestionInt.SOCIAL);
+		if (economicMax == economicMin || socialMax == socialMin)
+			throw new IllegalArgumentException(
+					"Chart needs to be able to move both axes.");
+		
+		economicScores = new float[economicMax - economicMin + 1];
+		for (int i = 0; i < economicScores.length; ++i)
+			economicScores[i] = normalize(economicMin + i, economicMin, economicMax);
+		socialScores = new float[socialMax - socialMin + 1];
+		for (int i = 0; i < socialScores.length; ++i)
+			socialScores[i] = normalize(socialMin + i, socialMin, socialMax);
+	}
+	
+	/**
+	 * Reads a chart with {@link Chart#open(Path)}.
+	 */
+	public static Scorer read(Path path) throws IOException {
+		return new Scorer(Chart.open(path));
+	}
+	
+	public Chart chart() {
+		return chart;
+	}
+	
+	/**
+	 * Unlike {@link AnswerVector#of(Map)}, every question needs to be answered.
+	 */
+	public ScoreInt raw(Map<String, Integer> response) {
+		int answered = 0;
+		for (String name : response.keySet())
+			if (Questions.ordinal(name) >= 0)
+				++answered;
+		if (answered < Questions.COUNT)
+			for (int ordinal = 0; ordinal < Questions.COUNT; ++ordinal)
+				if (!response.containsKey(Questions.name(ordinal)))
+					throw new IllegalArgumentException(String.format(
+							"No answer for %s.", Questions.name(ordinal)));
+		return raw(AnswerVector.of(response));
+	}
+	
+	public ScoreInt raw(AnswerVector response) {
+		int economic = 0, social = 0;
+		for (int ordinal = 0; ordinal < Questions.COUNT; ++ordinal) {
+			int increment = chart.increment(ordinal, response.get(ordinal));
+			if (chart.axis(ordinal) == QuestionInt.ECONOMIC)
+				economic += increment;
+			else
+				social += increment;
+		}
+		return new ScoreInt(economic, social);
+	}
+	
+	/**
+	 * Offline equivalent of {@link PCReversal#run(Map)}.
+	 */
+	public ScoreFloat score(Map<String, Integer> response) {
+		ScoreInt raw = raw(response);
+		return normalize(raw.economic, raw.social);
+	}
+	
+	public ScoreFloat score(AnswerVector response) {
+		ScoreInt raw = raw(response);
+		return normalize(raw.economic, raw.social);
+	}
+	
+	int axis(int ordinal) {
+		return chart.axis(ordinal);
+	}
+	
+	int increment(int ordinal, int answer) {
+		return chart.increment(ordinal, answer);
+	}
+	
+	/**
+	 * Smallest raw score the chart allows on the given axis.
+	 */
+	int min(int axis) {
+		return axis == QuestionInt.ECONOMIC ? economicMin : socialMin;
+	}
+	
+	/**
+	 * Largest raw score the chart allows on the given axis.
+	 */
+	int max(int axis) {
+		return axis == QuestionInt.ECONOMIC ? economicMax : socialMax;
+	}
+	
+	/**
+	 * Quadrant of the compass the raw scores fall into, without normalizing:
+	 * bit 0 is set right of the vertical axis (economic &gt; 0), bit 1 above
+	 * the horizontal axis (social &gt; 0). Scores right on an axis count as
+	 * being left of or below it.
+	 */
+	public int quadrant(int economic, int social) {
+		return (2 * economic > economicMax + economicMin ? 1 : 0) |
+				(2 * social > socialMax + socialMin ? 2 : 0);
+	}
+	
+	/**
+	 * Raw scores need to be ones the chart can give.
+	 */
+	public ScoreFloat normalize(int economic, int social) {
+		return new ScoreFloat(economic(economic), social(social));
+	}
+	
+	/**
+	 * Normalized economic score, without allocating a {@link ScoreFloat}.
+	 */
+	public float economic(int raw) {
+		return economicScores[raw - economicMin];
+	}
+	
+	/**
+	 * Normalized social score, without allocating a {@link ScoreFloat}.
+	 */
+	public float social(int raw) {
+		return socialScores[raw - socialMin];
+	}
+	
+	/**
+	 * Rounded to two decimals the same way as the result page shows it. Works
+	 * for raw scores outside [min, max] too, which a score carried over to
+	 * page 6 can give.
+	 */
+	static float normalize(int raw, int min, int max) {
+		double hundredths = (2.0 * raw - max - min) * 1000 / (max - min);
+		return (float) (Math.signum(hundredths) * Math.round(Math.abs(hundredths)))
+				/ 100;
+	}
+}
@@ -0,0 +1,100 @@
+package com.github.pcre;
+
+import com.github.pcre.PCReversal.QuestionInt;
+import com.github.pcre.PCReversal.ScoreFloat;
+import com.github.pcre.PCReversal.ScoreInt;
+
+/**
+ * Scores {@link AnswerVector}s with lookup tables instead of going through
+ * the questions one by one, for bulk re-scoring.
+ *
+ * <p>
+ * Each byte of a packed {@link AnswerVector} holds the answers to 4 questions,
+ * so there is a table of 256 entries for each of the 16 bytes. An entry holds
+ * the increments of all 4 questions on both axes as
+ *
+ * <p>
+ * <i>economic * 2^32 + social</i>
+ *
+ * <p>
+ * which can be added up as a single {@code long}, since the social total
+ * never comes anywhere near 2^31. Scoring a respondent is then 16 loads and
+ * adds, and {@link #economic(long)} and {@link #social(long)} take the sum
+ * apart again.
+ */
+class TableScorer {
+	private final Scorer scorer;
+	
+	/**
+	 * Table for byte <i>b</i> starts at <i>256b</i>.
+	 */
+	private final long[] table = new long[16 * 256];
+	
+	public TableScorer(Scorer scorer) {
+		this.scorer = scorer;
+		
+		for (int b = 0; b < 16; ++b) {
+			for (int value = 0; value < 256; ++value) {
+				long economic = 0, social = 0;
+				for (int i = 0; i < 4; ++i) {
+					int ordinal = b * 4 + i;
+					if (ordinal >= Questions.COUNT)
+						break;
+					
+					int increment = scorer.increment(ordinal, (value >>> (i << 1)) & 3);
+					if (scorer.axis(ordinal) == QuestionInt.ECONOMIC)
+						economic += increment;
+					else
+						social += increment;
+				}
+				table[b << 8 | value] = (economic << 32) + social;
+			}
+		}
+	}
+	
+	/**
+	 * Raw scores in the form described in {@link TableScorer}.
+	 */
+	public long packed(long low, long high) {
+		long[] t = table;
+		return
+				t[(int) low & 0xFF] +
+				t[0x100 | (int) (low >>> 8) & 0xFF] +
+				t[0x200 | (int) (low >>> 16) & 0xFF] +
+				t[0x300 | (int) (low >>> 24) & 0xFF] +
+				t[0x400 | (int) (low >>> 32) & 0xFF] +
+				t[0x500 | (int) (low >>> 40) & 0xFF] +
+				t[0x600 | (int) (low >>> 48) & 0xFF] +
+				t[0x700 | (int) (low >>> 56) & 0xFF] +
+				t[0x800 | (int) high & 0xFF] +
+				t[0x900 | (int) (high >>> 8) & 0xFF] +
+				t[0xA00 | (int) (high >>> 16) & 0xFF] +
+				t[0xB00 | (int) (high >>> 24) & 0xFF] +
+				t[0xC00 | (int) (high >>> 32) & 0xFF] +
+				t[0xD00 | (int) (high >>> 40) & 0xFF] +
+				t[0xE00 | (int) (high >>> 48) & 0xFF] +
+				t[0xF00 | (int) (high >>> 56) & 0xFF];
+	}
+	
+	public static int economic(long packed) {
+		return (int) ((packed - (int) packed) >> 32);
+	}
+	
+	public static int social(long packed) {
+		return (int) packed;
+	}
+	
+	public ScoreInt raw(AnswerVector response) {
+		long packed = packed(response.low, response.high);
+		return new ScoreInt(economic(packed), social(packed));
+	}
+	
+	public ScoreFloat score(AnswerVector response) {
+		long packed = packed(response.low, response.high);
+		return scorer.normalize(economic(packed), social(packed));
+	}
+	
+	public Scorer scorer() {
+		return scorer;
+	}
+}
@@ -0,0 +1,278 @@
+package com.github.pcre;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the pages sent through another {@link Transport} to what the server
+ * will put up with, and retries the ones that fail for reasons that might go
+ * away.
+ *
+ * <p>
+ * Three things work together:
+ * <li>
+ * A token bucket caps the rate at which pages are sent, allowing short
+ * bursts, however many threads are sending.
+ * <li>
+ * The number of pages in flight is limited, and the limit is adjusted the
+ * way TCP adjusts its congestion window: it grows by about one for every
+ * limit's worth of pages that come back quickly, and is halved when the
+ * server throttles (429), is overloaded (503 and the like) or takes more than
+ * {@link #LATENCY_TOLERANCE} times the smoothed latency, a moving average of
+ * recent responses like TCP's smoothed round-trip time. It's halved at most
+ * once per round trip, so one slow spell doesn't collapse it.
+ * <li>
+ * Failures that might go away (network errors and the statuses in
+ * {@link HttpStatusException#isTransient()}) are retried after a random wait
+ * of up to {@link #BASE_BACKOFF} milliseconds, doubling with every attempt up
+ * to {@link #MAX_BACKOFF}, or as long as the server asked with
+ * {@code Retry-After}. Other failures are thrown straight away.
+ * </li>
+ *
+ * <p>
+ * A page counts as in flight until its response stream is closed.
+ */
+class ThrottledTransport implements Transport {
+	public static final double DEFAULT_RATE = 10;
+	
+	public static final int DEFAULT_BURST = 10;
+	
+	public static final int DEFAULT_ATTEMPTS = 5;
+	
+	public static final long BASE_BACKOFF = 250;
+	
+	public static final long MAX_BACKOFF = 30000;
+	
+	public static final double LATENCY_TOLERANCE = 2;
+	
+	/**
+	 * Weight of each response in the smoothed latency.
+	 */
+	private static final double SMOOTHING = 0.125;
+	
+	private final Transport transport;
+	
+	/**
+	 * Tokens added per nanosecond.
+	 */
+	private final double rate;
+	
+	private final int burst;
+	
+	private final int maxConcurrency;
+	
+	private final int attempts;
+	
+	private double tokens;
+	
+	private long refilled;
+	
+	/**
+	 * Pages allowed in flight; fractional so it can grow by less than one.
+	 */
+	private double limit;
+	
+	private int inFlight;
+	
+	/**
+	 * Smoothed latency of successful responses, in nanoseconds, or 0 before
+	 * the first one.
+	 */
+	private double smoothed;
+	
+	private long decreased;
+	
+	private long retries;
+	
+	/**
+	 * {@link #DEFAULT_RATE} pages a second in bursts of up to
+	 * {@link #DEFAULT_BURST}, up to {@link ChartReconstructor#DEFAULT_IN_FLIGHT}
+	 * at a time and {@link #DEFAULT_ATTEMPTS} attempts per page.
+	 */
+	public ThrottledTransport(Transport transport) {
+		this(transport, DEFAULT_RATE, DEFAULT_BURST,
+				ChartReconstructor.DEFAULT_IN_FLIGHT, DEFAULT_ATTEMPTS);
+	}
+	
+	/**
+	 * @param rate most pages sent per second, on average
+	 * @param burst most pages sent at once after a lull
+	 * @param maxConcurrency most pages in flight
+	 * @param attempts most times a page is sent
+	 */
+	public ThrottledTransport(Transport transport, double rate, int burst,
+			int maxConcurrency, int attempts) {
+		if (!(rate > 0))
+			throw new IllegalArgumentException(String.format(
+					"Rate (%f) needs to be positive.", rate));
+		if (burst < 1)
+			throw new IllegalArgumentException(String.format(
+					"Burst (%d) needs to be positive.", burst));
+		if (maxConcurrency < 1)
+			throw new IllegalArgumentException(String.format(
+					"Concurrency (%d) needs to be positive.", maxConcurrency));
+		if (attempts < 1)
+			throw new IllegalArgumentException(String.format(
+					"Number of attempts (%d) needs to be positive.", attempts));
+		
+		this.transport = transport;
+		this.rate = rate / TimeUnit.SECONDS.toNanos(1);
+		this.burst = burst;
+		this.maxConcurrency = maxConcurrency;
+		this.attempts = attempts;
+		this.tokens = burst;
+		this.refilled = System.nanoTime();
+		this.limit = Math.min(maxConcurrency, 2);
+		this.decreased = refilled - TimeUnit.HOURS.toNanos(1);
+	}
+	
+	@Override
+	public InputStream post(byte[] body, int offset, int length)
+			throws IOException {
+		for (int attempt = 1;; ++attempt) {
+			try {
+				acquire();
+				enter();
+			} catch (InterruptedException x) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to send.");
+			}
+			
+			long start = System.nanoTime();
+			InputStream input = null;
+			IOException failure;
+			try {
+				input = transport.post(body, offset, length);
+				failure = null;
+			} catch (IOException x) {
+				failure = x;
+			} finally {
+				// Whatever went wrong, the slot is only kept along with a stream.
+				if (input == null)
+					leave();
+			}
+			
+			if (failure == null) {
+				succeeded(System.nanoTime() - start);
+				return new FilterInputStream(input) {
+					private boolean closed;
+					
+					@Override
+					public void close() throws IOException {
+						if (closed)
+							return;
+						closed = true;
+						try {
+							super.close();
+						} finally {
+							leave();
+						}
+					}
+				};
+			}
+			
+			boolean status = failure instanceof HttpStatusException;
+			if (status && !((HttpStatusException) failure).isTransient())
+				throw failure;
+			failed(System.nanoTime() - start);
+			if (attempt == attempts)
+				throw failure;
+			
+			long backoff = BASE_BACKOFF << Math.min(attempt - 1, 16);
+			long wait = ThreadLocalRandom.current().nextLong(
+					Math.min(MAX_BACKOFF, backoff) + 1);
+			if (status)
+				wait = Math.max(wait, ((HttpStatusException) failure).retryAfter());
+			synchronized (this) {
+				++retries;
+			}
+			try {
+				Thread.sleep(wait);
+			} catch (InterruptedException y) {
+				Thread.currentThread().interrupt();
+				InterruptedIOException z =
+						new InterruptedIOException("Interrupted while backing off.");
+				z.initCause(failure);
+				throw z;
+			}
+		}
+	}
+	
+	/**
+	 * Waits for a token from the bucket.
+	 */
+	private void acquire() throws InterruptedException {
+		while (true) {
+			long wait;
+			synchronized (this) {
+				long now = System.nanoTime();
+				tokens = Math.min(burst, tokens + (now - refilled) * rate);
+				refilled = now;
+				if (tokens >= 1) {
+					--tokens;
+					return;
+				}
+				wait = (long) Math.ceil((1 - tokens) / rate);
+			}
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+	
+	/**
+	 * Waits for room under the concurrency limit.
+	 */
+	private synchronized void enter() throws InterruptedException {
+		while (inFlight >= (int) limit)
+			wait();
+		++inFlight;
+	}
+	
+	private synchronized void leave() {
+		--inFlight;
+		notifyAll();
+	}
+	
+	private synchronized void succeeded(long latency) {
+		boolean slow = smoothed > 0 && latency > LATENCY_TOLERANCE * smoothed;
+		smoothed = smoothed > 0 ? smoothed + SMOOTHING * (latency - smoothed) : latency;
+		if (slow) {
+			decrease(latency);
+		} else {
+			limit = Math.min(maxConcurrency, limit + 1 / limit);
+			notifyAll();
+		}
+	}
+	
+	private synchronized void failed(long latency) {
+		decrease(latency);
+	}
+	
+	/**
+	 * Halves the limit, unless it was halved less than a round trip ago.
+	 */
+	private void decrease(long latency) {
+		long now = System.nanoTime();
+		if (now - decreased < Math.max(latency, smoothed))
+			return;
+		decreased = now;
+		limit = Math.max(1, limit / 2);
+	}
+	
+	/**
+	 * Current limit on pages in flight.
+	 */
+	public synchronized int concurrency() {
+		return (int) limit;
+	}
+	
+	/**
+	 * Pages sent again after failing.
+	 */
+	public synchronized long retries() {
+		return retries;
+	}
+}
@@ -0,0 +1,24 @@
+package com.github.pcre;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Sends a form-encoded page of the test and returns the response, for
+ * {@link PCReversal}. The default is {@link HttpTransport}, which goes to the
+ * website; others can score pages without going over the network at all.
+ */
+interface Transport {
+	/**
+	 * Posts {@code length} bytes of {@code body}, starting at {@code offset},
+	 * as {@code application/x-www-form-urlencoded}. The body may be reused once
+	 * this returns, so it can't be held on to.
+	 *
+	 * <p>
+	 * The caller closes the returned stream once it's read as much of the
+	 * response as it needs.
+	 *
+	 * @return body of the response
+	 */
+	InputStream post(byte[] body, int offset, int length) throws IOException;
+}
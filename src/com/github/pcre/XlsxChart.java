@@ -0,0 +1,346 @@
+package com.github.pcre;
+
+import static com.github.pcre.PCReversal.QUESTIONS;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.github.pcre.PCReversal.QuestionInt;
+
+/**
+ * Reads a {@link Chart} from a spreadsheet like "results/20161110.xlsx",
+ * with nothing but the JDK.
+ *
+ * <p>
+ * An xlsx file is a zip of XML parts. The first sheet of the workbook is
+ * found through "xl/workbook.xml" and its relationships, and parsed with SAX
+ * straight out of the zip, one row at a time, so memory doesn't grow with the
+ * size of the sheet; only the shared strings table, which the sheet's text
+ * cells point into, is kept whole.
+ *
+ * <p>
+ * The first row names the columns, in any order: P (page), Q (question),
+ * X (axis, E or S), SD, D, A and SA (increments for each answer, SD being 0).
+ * Other columns, like #, are ignored, as are rows without a page. The version
+ * of the chart comes from the name of the file; see {@link Chart#version(Path)}.
+ */
+final class XlsxChart {
+	private static final String MAIN =
+			"http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+	
+	private static final String RELATIONSHIPS =
+			"http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+	
+	private static final String[] COLUMNS = {"P", "Q", "X", "D", "A", "SA"};
+	
+	private XlsxChart() {
+	}
+	
+	public static Chart read(Path path) throws IOException {
+		try (ZipFile zip = new ZipFile(path.toFile())) {
+			SAXParser parser = parser();
+			List<String> strings = new ArrayList<>();
+			ZipEntry entry = zip.getEntry("xl/sharedStrings.xml");
+			if (entry != null)
+				parse(zip, entry, parser, new SharedStrings(strings), path);
+			
+			Rows rows = new Rows(strings, path);
+			parse(zip, entry(zip, sheet(zip, parser, path), path), parser, rows, path);
+			return new Chart(Chart.version(path), rows.chart());
+		}
+	}
+	
+	private static SAXParser parser() throws IOException {
+		try {
+			SAXParserFactory factory = SAXParserFactory.newInstance();
+			factory.setNamespaceAware(true);
+			// Workbooks have no business declaring entities.
+			factory.setFeature(
+					"http://apache.org/xml/features/disallow-doctype-decl", true);
+			return factory.newSAXParser();
+		} catch (ParserConfigurationException | SAXException x) {
+			throw new IOException("No suitable XML parser.", x);
+		}
+	}
+	
+	private static ZipEntry entry(ZipFile zip, String name, Path path) {
+		ZipEntry entry = zip.getEntry(name);
+		if (entry == null)
+			throw new IllegalArgumentException(String.format(
+					"%s has no %s; it isn't a workbook.", path, name));
+		return entry;
+	}
+	
+	private static void parse(ZipFile zip, ZipEntry entry, SAXParser parser,
+			DefaultHandler handler, Path path) throws IOException {
+		try (InputStream input = zip.getInputStream(entry)) {
+			parser.reset();
+			parser.parse(input, handler);
+		} catch (SAXException x) {
+			if (x.getException() instanceof RuntimeException)
+				throw (RuntimeException) x.getException();
+			throw new IllegalArgumentException(String.format(
+					"%s in %s isn't well-formed: %s",
+					entry.getName(), path, x.getMessage()), x);
+		}
+	}
+	
+	/**
+	 * Name of the part holding the first sheet.
+	 */
+	private static String sheet(ZipFile zip, SAXParser parser, Path path)
+			throws IOException {
+		String[] id = new String[1];
+		parse(zip, entry(zip, "xl/workbook.xml", path), parser, new DefaultHandler() {
+			@Override
+			public void startElement(String uri, String local, String qName,
+					Attributes attributes) {
+				if (id[0] == null && MAIN.equals(uri) && local.equals("sheet"))
+					id[0] = attributes.getValue(RELATIONSHIPS, "id");
+			}
+		}, path);
+		if (id[0] == null)
+			throw new IllegalArgumentException(String.format(
+					"%s has no sheets.", path));
+		
+		String[] target = new String[1];
+		parse(zip, entry(zip, "xl/_rels/workbook.xml.rels", path), parser,
+				new DefaultHandler() {
+			@Override
+			public void startElement(String uri, String local, String qName,
+					Attributes attributes) {
+				if (local.equals("Relationship") &&
+						id[0].equals(attributes.getValue("Id")))
+					target[0] = attributes.getValue("Target");
+			}
+		}, path);
+		if (target[0] == null)
+			throw new IllegalArgumentException(String.format(
+					"%s doesn't say where its first sheet is.", path));
+		return target[0].startsWith("/") ? target[0].substring(1) : "xl/" + target[0];
+	}
+	
+	/**
+	 * Collects the text of every {@code si} element, rich text runs included.
+	 */
+	private static class SharedStrings extends DefaultHandler {
+		private final List<String> strings;
+		
+		private final StringBuilder text = new StringBuilder();
+		
+		private boolean inText;
+		
+		public SharedStrings(List<String> strings) {
+			this.strings = strings;
+		}
+		
+		@Override
+		public void startElement(String uri, String local, String qName,
+				Attributes attributes) {
+			if (local.equals("si"))
+				text.setLength(0);
+			else if (local.equals("t"))
+				inText = true;
+		}
+		
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (inText)
+				text.append(ch, start, length);
+		}
+		
+		@Override
+		public void endElement(String uri, String local, String qName) {
+			if (local.equals("t"))
+				inText = false;
+			else if (local.equals("si"))
+				strings.add(text.toString());
+		}
+	}
+	
+	/**
+	 * Turns rows into questions as they go by.
+	 */
+	private static class Rows extends DefaultHandler {
+		private final List<String> strings;
+		
+		private final Path path;
+		
+		private final QuestionInt[][] chart = new QuestionInt[QUESTIONS.length][];
+		
+		/**
+		 * Column of each of {@link #COLUMNS}, and of SD, once the header is read.
+		 */
+		private int[] columns;
+		
+		private int sd = -1;
+		
+		/**
+		 * Values of the current row by column.
+		 */
+		private final Map<Integer, String> row = new HashMap<>();
+		
+		private int number, column;
+		
+		private String type;
+		
+		private final StringBuilder value = new StringBuilder();
+		
+		private boolean inValue;
+		
+		public Rows(List<String> strings, Path path) {
+			this.strings = strings;
+			this.path = path;
+			for (int page = 0; page < QUESTIONS.length; ++page)
+				chart[page] = new QuestionInt[QUESTIONS[page].length];
+		}
+		
+		@Override
+		public void startElement(String uri, String local, String qName,
+				Attributes attributes) {
+			if (local.equals("row")) {
+				row.clear();
+				column = -1;
+				String r = attributes.getValue("r");
+				number = r == null ? number + 1 : Integer.parseInt(r);
+			} else if (local.equals("c")) {
+				String r = attributes.getValue("r");
+				column = r == null ? column + 1 : column(r);
+				type = attributes.getValue("t");
+				value.setLength(0);
+			} else if (local.equals("v") || local.equals("t")) {
+				inValue = true;
+			}
+		}
+		
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (inValue)
+				value.append(ch, start, length);
+		}
+		
+		@Override
+		public void endElement(String uri, String local, String qName) {
+			if (local.equals("v") || local.equals("t")) {
+				inValue = false;
+			} else if (local.equals("c")) {
+				String text = value.toString().trim();
+				if ("s".equals(type)) {
+					int index = Integer.parseInt(text);
+					if (index < 0 || index >= strings.size())
+						throw new IllegalArgumentException(String.format(
+								"Cell in row %d of %s points to shared string %d, " +
+								"which doesn't exist.",
+								number, path, index));
+					text = strings.get(index).trim();
+				}
+				if (!text.isEmpty())
+					row.put(column, text);
+			} else if (local.equals("row")) {
+				if (columns == null)
+					header();
+				else if (!row.isEmpty())
+					question();
+			}
+		}
+		
+		/**
+		 * Zero-based column of a cell reference like "AB12".
+		 */
+		private static int column(String reference) {
+			int column = 0;
+			for (int i = 0; i < reference.length(); ++i) {
+				char c = reference.charAt(i);
+				if (c < 'A' || c > 'Z')
+					break;
+				column = column * 26 + c - 'A' + 1;
+			}
+			return column - 1;
+		}
+		
+		private void header() {
+			for (Map.Entry<Integer, String> cell : row.entrySet())
+				if (cell.getValue().equalsIgnoreCase("SD"))
+					sd = cell.getKey();
+			
+			columns = new int[COLUMNS.length];
+			for (int i = 0; i < COLUMNS.length; ++i) {
+				columns[i] = -1;
+				for (Map.Entry<Integer, String> cell : row.entrySet())
+					if (cell.getValue().equalsIgnoreCase(COLUMNS[i]))
+						columns[i] = cell.getKey();
+				if (columns[i] < 0)
+					throw new IllegalArgumentException(String.format(
+							"The first row of %s has no %s column.",
+							path, COLUMNS[i]));
+			}
+		}
+		
+		private void question() {
+			if (!row.containsKey(columns[0]))
+				return;
+			
+			int page = integer(columns[0]), question = integer(columns[1]);
+			if (page < 1 || page > chart.length ||
+					question < 1 || question > chart[page - 1].length)
+				throw new IllegalArgumentException(String.format(
+						"Row %d of %s refers to question %d on page %d, " +
+						"which doesn't exist.",
+						number, path, question, page));
+			
+			String x = row.get(columns[2]);
+			int axis;
+			if ("E".equals(x))
+				axis = QuestionInt.ECONOMIC;
+			else if ("S".equals(x))
+				axis = QuestionInt.SOCIAL;
+			else
+				throw new IllegalArgumentException(String.format(
+						"Row %d of %s has axis %s instead of E or S.",
+						number, path, x));
+			if (sd >= 0 && row.containsKey(sd) && integer(sd) != 0)
+				throw new IllegalArgumentException(String.format(
+						"Row %d of %s has %d for Strongly Disagree instead of 0.",
+						number, path, integer(sd)));
+			
+			chart[page - 1][question - 1] = new QuestionInt(axis, new int[] {
+					integer(columns[3]), integer(columns[4]), integer(columns[5])
+			});
+		}
+		
+		private int integer(int column) {
+			String text = row.get(column);
+			if (text != null) {
+				try {
+					double value = Double.parseDouble(text);
+					if (value == Math.rint(value) && Math.abs(value) <= Integer.MAX_VALUE)
+						return (int) value;
+				} catch (NumberFormatException x) {
+					// Reported below.
+				}
+			}
+			throw new IllegalArgumentException(String.format(
+					"Row %d of %s has %s where an integer should be.",
+					number, path, text));
+		}
+		
+		public QuestionInt[][] chart() {
+			return chart;
+		}
+	}
+}